@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts an embedded lock server and the lock service used by the benchmarks.
+ * <p>
+ * With {@code client} access the lock service goes through a {@link HazelcastClientNode}, with {@code embedded}
+ * access it uses the member instance directly, so the difference shows the cost of the client-to-member hop.
+ * With {@code lite} access the data members run on their own and the benchmark joins them as a lite member,
+ * which owns no locks but calls their owners directly.
+ * </p>
+ *
+ * <p>
+ * Several members form a cluster on the loopback interface, so they share the CPUs of the benchmark machine;
+ * the numbers show the cost of partition distribution and backups rather than the scaling on separate hosts.
+ * </p>
+ */
+class BenchmarkCluster {
+
+    static final String CLIENT = "client";
+    static final String EMBEDDED = "embedded";
+    static final String LITE = "lite";
+
+    private static final int FIRST_PORT = 5701;
+
+    private final List<HazelcastInstance> extraMembers = new ArrayList<>();
+    private HazelcastClientNode clientNode;
+    private LockService lockService;
+
+    LockService start(String access) {
+        return start(access, new HazelcastConfiguration.Builder());
+    }
+
+    LockService start(String access, HazelcastConfiguration.Builder builder) {
+        return start(access, builder, 1);
+    }
+
+    LockService start(String access, HazelcastConfiguration.Builder builder, int members) {
+        boolean lite = LITE.equals(access);
+        int instances = lite ? members + 1 : members;
+        if (instances > 1) {
+            for (int i = 0; i < instances; i++) {
+                builder.addHazelcastServer("127.0.0.1:" + (FIRST_PORT + i));
+            }
+        }
+        HazelcastConfiguration configuration = builder
+                .hazelcastInstance("akubrasync-bench")
+                .hazelcastUser("bench")
+                .waitTimeSecs(120L)
+                .leaseTimeSecs(120L)
+                .build();
+        if (lite) {
+            for (int i = 0; i < members; i++) {
+                startMember(configuration, i);
+            }
+            HazelcastServerNode.ensureHazelcastNode(builder.liteMember(true).build());
+        } else {
+            HazelcastServerNode.ensureHazelcastNode(configuration);
+            for (int i = 1; i < members; i++) {
+                startMember(configuration, i);
+            }
+        }
+        if (CLIENT.equals(access)) {
+            clientNode = new HazelcastClientNode();
+            clientNode.ensureHazelcastNode(configuration);
+            lockService = new LockService(clientNode, configuration);
+        } else if (EMBEDDED.equals(access) || lite) {
+            lockService = new LockService(HazelcastServerNode.getHzInstance(), configuration);
+        } else {
+            throw new IllegalArgumentException("Unknown access " + access);
+        }
+        return lockService;
+    }
+
+    private void startMember(HazelcastConfiguration configuration, int index) {
+        Config config = HazelcastServerNode.createMemberConfig(configuration);
+        config.setInstanceName(configuration.getHazelcastInstance() + "-" + index);
+        extraMembers.add(Hazelcast.newHazelcastInstance(config));
+    }
+
+    void stop() {
+        if (lockService != null) {
+            lockService.shutdown();
+        }
+        if (clientNode != null) {
+            clientNode.shutdown();
+        }
+        extraMembers.forEach(HazelcastInstance::shutdown);
+        extraMembers.clear();
+        HazelcastServerNode.shutdown();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Throughput of 1, 8 and 64 threads contending for the same lock.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ContendedLockBenchmark {
+
+    private static final String LOCK_NAME = "uuid:bench-contended";
+
+    @Param({BenchmarkCluster.CLIENT, BenchmarkCluster.EMBEDDED})
+    public String access;
+
+    private final BenchmarkCluster cluster = new BenchmarkCluster();
+    private LockService lockService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lockService = cluster.start(access);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cluster.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object threads1() throws TimeoutException {
+        return lockService.doWithLock(LOCK_NAME, () -> Boolean.TRUE);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object threads8() throws TimeoutException {
+        return lockService.doWithLock(LOCK_NAME, () -> Boolean.TRUE);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Object threads64() throws TimeoutException {
+        return lockService.doWithLock(LOCK_NAME, () -> Boolean.TRUE);
+    }
+}
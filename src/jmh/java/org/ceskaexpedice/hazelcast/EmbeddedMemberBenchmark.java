@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Latency of an uncontended acquire + release cycle of an application using the locks through a client,
+ * as an embedded full member and as an embedded lite member of a cluster of 1 and 2 data members.
+ * <p>
+ * A full member owns a share of the locks and handles those without any network hop, the other locks cost
+ * one member-to-member hop, as does every lock of a lite member; a client pays the client-to-member hop.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(1)
+public class EmbeddedMemberBenchmark {
+
+    private static final int LOCK_NAMES = 1000;
+
+    @Param({BenchmarkCluster.CLIENT, BenchmarkCluster.EMBEDDED, BenchmarkCluster.LITE})
+    public String access;
+
+    @Param({"1", "2"})
+    public int members;
+
+    private final BenchmarkCluster cluster = new BenchmarkCluster();
+    private LockService lockService;
+    private String[] names;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lockService = cluster.start(access, new HazelcastConfiguration.Builder(), members);
+        names = new String[LOCK_NAMES];
+        for (int i = 0; i < LOCK_NAMES; i++) {
+            names[i] = "uuid:bench-embedded-" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cluster.stop();
+    }
+
+    @Benchmark
+    public Object lock() throws TimeoutException {
+        return lockService.doWithLock(nextName(), () -> Boolean.TRUE);
+    }
+
+    @Benchmark
+    public Object writeLock() throws TimeoutException {
+        return lockService.doWithWriteLock(nextName(), () -> Boolean.TRUE);
+    }
+
+    private String nextName() {
+        String name = names[next];
+        next = next + 1 == names.length ? 0 : next + 1;
+        return name;
+    }
+}
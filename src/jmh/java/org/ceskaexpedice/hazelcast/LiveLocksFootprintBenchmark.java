@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap footprint and full GC pause of an embedded member holding a large number of live locks, as {@code ILock}s
+ * of the built-in lock service and as read/write locks (compact {@link LockState} entries of the
+ * {@value DistributedReadWriteLock#MAP_NAME} map expired by the {@link LeaseTimingWheel}).
+ * <p>
+ * The locks are acquired with a lease of an hour and never released. Every iteration measures one full
+ * collection ({@code System.gc()}); the {@code heapUsedMb} counter reports the heap left after it, i.e. the
+ * live data of the member. Run with e.g. {@code -PjmhIncludes=LiveLocksFootprintBenchmark}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class LiveLocksFootprintBenchmark {
+
+    static final String ILOCK = "ilock";
+    static final String READ_WRITE = "readWrite";
+
+    private static final int BATCH_SIZE = 10_000;
+    private static final String OWNER = "bench-footprint:1";
+
+    @Param({ILOCK, READ_WRITE})
+    public String namespace;
+
+    @Param({"1000000"})
+    public int locks;
+
+    private final BenchmarkCluster cluster = new BenchmarkCluster();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cluster.start(BenchmarkCluster.EMBEDDED);
+        HazelcastInstance hzInstance = HazelcastServerNode.getHzInstance();
+        if (ILOCK.equals(namespace)) {
+            for (int i = 0; i < locks; i++) {
+                hzInstance.getLock(lockName(i)).lock(1, TimeUnit.HOURS);
+            }
+        } else if (READ_WRITE.equals(namespace)) {
+            IMap<String, LockState> map = hzInstance.getMap(DistributedReadWriteLock.MAP_NAME);
+            long leaseMillis = TimeUnit.HOURS.toMillis(1);
+            for (int from = 0; from < locks; from += BATCH_SIZE) {
+                Set<String> batch = new HashSet<>();
+                for (int i = from; i < Math.min(locks, from + BATCH_SIZE); i++) {
+                    batch.add(lockName(i));
+                }
+                map.executeOnKeys(batch, LockStateProcessor.acquire(OWNER, LockMode.EXCLUSIVE, leaseMillis));
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown namespace " + namespace);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cluster.stop();
+    }
+
+    @Benchmark
+    public void fullGc(Footprint footprint) {
+        System.gc();
+        footprint.heapUsedMb = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20;
+    }
+
+    private static String lockName(int i) {
+        return "uuid:bench-footprint-" + i;
+    }
+
+    /**
+     * The heap used after the collection of the iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long heapUsedMb;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Latency of an uncontended acquire + release cycle.
+ * <p>
+ * A single thread cycles through {@code cardinality} distinct lock names, so the benchmark also shows how the
+ * number of distinct names (proxy lookups, server side lock records) influences the latency.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(1)
+public class UncontendedLockBenchmark {
+
+    @Param({BenchmarkCluster.CLIENT, BenchmarkCluster.EMBEDDED})
+    public String access;
+
+    @Param({"1", "1000", "1000000"})
+    public int cardinality;
+
+    private final BenchmarkCluster cluster = new BenchmarkCluster();
+    private LockService lockService;
+    private String[] names;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lockService = cluster.start(access);
+        names = new String[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            names[i] = "uuid:bench-" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cluster.stop();
+    }
+
+    @Benchmark
+    public Object lock() throws TimeoutException {
+        return lockService.doWithLock(nextName(), () -> Boolean.TRUE);
+    }
+
+    @Benchmark
+    public Object readLock() throws TimeoutException {
+        return lockService.doWithReadLock(nextName(), () -> Boolean.TRUE);
+    }
+
+    @Benchmark
+    public Object writeLock() throws TimeoutException {
+        return lockService.doWithWriteLock(nextName(), () -> Boolean.TRUE);
+    }
+
+    private String nextName() {
+        String name = names[next];
+        next = next + 1 == names.length ? 0 : next + 1;
+        return name;
+    }
+}
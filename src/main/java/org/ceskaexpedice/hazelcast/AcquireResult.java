@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+/**
+ * Outcome of an acquire attempt of a {@link LockStateProcessor}.
+ */
+enum AcquireResult {
+
+    /**
+     * The lock was granted.
+     */
+    GRANTED,
+
+    /**
+     * The lock is held by other owners, the attempt may be repeated.
+     */
+    REJECTED,
+
+    /**
+     * Waiting for the lock would close a cycle in the wait-for graph of the server, see {@link WaitForGraph}.
+     * The attempt must not be repeated.
+     */
+    DEADLOCK,
+
+    /**
+     * Too many owners already wait for the lock or for all locks of the server, see {@link WaitQueues}.
+     * The attempt must not be repeated.
+     */
+    OVERLOADED
+}
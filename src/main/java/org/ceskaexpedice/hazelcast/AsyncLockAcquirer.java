@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Acquires locks of the {@link DistributedReadWriteLock} namespace without blocking any thread.
+ * <p>
+ * Every request is owned by a new {@link AsyncLockHandle}. Requests for the same name queue locally in FIFO order
+ * and only the head of the queue talks to the {@link LockBackend}: it submits the acquire attempt asynchronously
+ * and, when the lock is busy, schedules the next attempt with an exponential backoff. A release of a local handle
+ * wakes the head up immediately. Thousands of pending requests therefore cost neither threads nor cluster traffic.
+ * </p>
+ *
+ * <p>
+ * Futures are completed on the {@link ForkJoinPool#commonPool()}, never on Hazelcast's internal threads.
+ * </p>
+ */
+class AsyncLockAcquirer {
+
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // shared by all acquirers, so that the handles of lock services sharing a client are distinct owners
+    private static final AtomicLong HANDLE_COUNTER = new AtomicLong();
+
+    private final LockBackend backend;
+    private final String ownerPrefix;
+    private final long waitNanos;
+    private final LockStatistics statistics;
+    private final ScheduledExecutorService scheduler;
+    private final Executor completionExecutor = ForkJoinPool.commonPool();
+    private final ConcurrentMap<String, ArrayDeque<PendingAcquire>> queues = new ConcurrentHashMap<>();
+
+    AsyncLockAcquirer(LockBackend backend, long waitTimeSecs, LockStatistics statistics,
+                      ScheduledExecutorService scheduler) {
+        this.backend = backend;
+        this.ownerPrefix = backend.getOwnerPrefix() + "h";
+        this.waitNanos = TimeUnit.SECONDS.toNanos(waitTimeSecs);
+        this.statistics = statistics;
+        this.scheduler = scheduler;
+    }
+
+    CompletableFuture<LockHandle> acquire(String lockName, LockMode mode) {
+        return acquire(lockName, mode, ownerPrefix + HANDLE_COUNTER.incrementAndGet(), true, true);
+    }
+
+    /**
+     * Requests the lock for the given owner.
+     *
+     * @param lockName The name of the lock.
+     * @param mode     The requested mode.
+     * @param owner    The owner of the lock.
+     * @param queued   {@code false} to bypass the local queue; used for reentrant requests of an owner which already
+     *                 holds the lock, such a request would otherwise wait behind requests waiting for the owner.
+     * @param tracked  {@code false} if the caller records the lock statistics itself.
+     * @return The future completed with the lock handle.
+     */
+    CompletableFuture<LockHandle> acquire(String lockName, LockMode mode, String owner, boolean queued, boolean tracked) {
+        PendingAcquire pending = new PendingAcquire(lockName, mode, owner, tracked);
+        if (!queued) {
+            attempt(pending);
+            return pending.future;
+        }
+        boolean[] head = new boolean[1];
+        queues.compute(lockName, (name, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+            }
+            queue.add(pending);
+            head[0] = queue.size() == 1;
+            return queue;
+        });
+        if (head[0]) {
+            attempt(pending);
+        }
+        return pending.future;
+    }
+
+    /**
+     * Cancels all pending requests.
+     * <p>
+     * The queues are copied under the lock of their map entries first: cancelling a request may dequeue it,
+     * which must not happen while its queue is iterated.
+     * </p>
+     */
+    void cancelAll() {
+        List<PendingAcquire> pendings = new ArrayList<>();
+        for (String lockName : queues.keySet()) {
+            queues.computeIfPresent(lockName, (name, queue) -> {
+                pendings.addAll(queue);
+                return queue;
+            });
+        }
+        for (PendingAcquire pending : pendings) {
+            // the scheduler may not run the next attempt anymore, which would withdraw the wait
+            if (pending.future.cancel(false) && pending.attempted) {
+                backend.cancel(pending.owner, Collections.singleton(pending.name));
+            }
+        }
+    }
+
+    /**
+     * Called when a handle released its lock, the local waiter for the name does not need to wait for its backoff.
+     */
+    void released(AsyncLockHandle handle) {
+        if (handle.isTracked()) {
+            statistics.recordHold(handle.getHoldNanos());
+        }
+        PendingAcquire[] head = new PendingAcquire[1];
+        queues.computeIfPresent(handle.getName(), (name, queue) -> {
+            head[0] = queue.peek();
+            return queue;
+        });
+        if (head[0] != null) {
+            head[0].wakeUp();
+        }
+    }
+
+    private void attempt(PendingAcquire pending) {
+        if (pending.future.isDone()) {
+            // cancelled by the caller
+            giveUp(pending);
+            return;
+        }
+        if (!pending.inFlight.compareAndSet(false, true)) {
+            return;
+        }
+        pending.attempted = true;
+        backend.attemptAsync(pending.owner, pending.name, pending.mode).whenComplete((acquired, t) -> {
+            pending.inFlight.set(false);
+            if (t != null) {
+                dequeue(pending);
+                completionExecutor.execute(() -> pending.future.completeExceptionally(t));
+            } else if (acquired == AcquireResult.GRANTED) {
+                granted(pending);
+            } else if (acquired == AcquireResult.DEADLOCK) {
+                deadlock(pending);
+            } else if (acquired == AcquireResult.OVERLOADED) {
+                overloaded(pending);
+            } else {
+                retry(pending);
+            }
+        });
+    }
+
+    private void granted(PendingAcquire pending) {
+        if (pending.tracked) {
+            statistics.recordAcquire(pending.name, System.nanoTime() - pending.createdAt);
+        }
+        AsyncLockHandle handle = new AsyncLockHandle(pending.name, pending.mode, pending.owner, pending.tracked, backend, this);
+        dequeue(pending);
+        completionExecutor.execute(() -> {
+            if (!pending.future.complete(handle)) {
+                // cancelled while the lock was being acquired
+                handle.releaseAsync();
+            }
+        });
+    }
+
+    private void deadlock(PendingAcquire pending) {
+        if (pending.tracked) {
+            statistics.recordDeadlock(pending.name, System.nanoTime() - pending.createdAt);
+        }
+        dequeue(pending);
+        completionExecutor.execute(() -> pending.future.completeExceptionally(
+                new DeadlockException("Deadlock detected while waiting for lock " + pending.name)));
+    }
+
+    private void overloaded(PendingAcquire pending) {
+        if (pending.tracked) {
+            statistics.recordOverload(pending.name, System.nanoTime() - pending.createdAt);
+        }
+        giveUp(pending);
+        completionExecutor.execute(() -> pending.future.completeExceptionally(
+                new OverloadedException("Too many waiters for lock " + pending.name)));
+    }
+
+    private void retry(PendingAcquire pending) {
+        long remaining = pending.deadline - System.nanoTime();
+        if (remaining <= 0) {
+            if (pending.tracked) {
+                statistics.recordTimeout(pending.name, System.nanoTime() - pending.createdAt);
+            }
+            giveUp(pending);
+            completionExecutor.execute(() -> pending.future.completeExceptionally(new TimeoutException(
+                    "Could not acquire lock " + pending.name + " within " + TimeUnit.NANOSECONDS.toSeconds(waitNanos)
+                            + " " + TimeUnit.SECONDS)));
+            return;
+        }
+        long delay = Math.min(pending.backoff, remaining);
+        pending.backoff = Math.min(pending.backoff * 2, MAX_BACKOFF_NANOS);
+        pending.scheduled = scheduler.schedule(() -> attempt(pending), delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Withdraws the wait of a request which did not get its lock from the server queues, see
+     * {@link LockBackend#cancel}, and removes it from the local queue.
+     */
+    private void giveUp(PendingAcquire pending) {
+        if (pending.attempted) {
+            backend.cancel(pending.owner, Collections.singleton(pending.name));
+        }
+        dequeue(pending);
+    }
+
+    /**
+     * Removes the finished request from its queue and lets the next request of the same name try its luck.
+     */
+    private void dequeue(PendingAcquire pending) {
+        PendingAcquire[] next = new PendingAcquire[1];
+        queues.computeIfPresent(pending.name, (name, queue) -> {
+            queue.remove(pending);
+            next[0] = queue.peek();
+            return queue.isEmpty() ? null : queue;
+        });
+        if (next[0] != null) {
+            attempt(next[0]);
+        }
+    }
+
+    /**
+     * Creates the scheduler shared by the asynchronous lock machinery of one {@link LockService}.
+     */
+    static ScheduledExecutorService createScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hazelcast-locks-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private class PendingAcquire {
+        private final String name;
+        private final LockMode mode;
+        private final String owner;
+        private final boolean tracked;
+        private final long createdAt = System.nanoTime();
+        private final long deadline = createdAt + waitNanos;
+        private final CompletableFuture<LockHandle> future = new CompletableFuture<>();
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+        private volatile boolean attempted;
+        private volatile long backoff = MIN_BACKOFF_NANOS;
+        private volatile ScheduledFuture<?> scheduled;
+
+        private PendingAcquire(String name, LockMode mode, String owner, boolean tracked) {
+            this.name = name;
+            this.mode = mode;
+            this.owner = owner;
+            this.tracked = tracked;
+        }
+
+        private void wakeUp() {
+            ScheduledFuture<?> task = scheduled;
+            if (task != null && task.cancel(false)) {
+                backoff = MIN_BACKOFF_NANOS;
+                attempt(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handle of a lock acquired by {@link LockService#acquireAsync(String)}.
+ * <p>
+ * The lock is owned by the handle, not by a thread, so it may be released from any thread or continuation.
+ * </p>
+ */
+public class AsyncLockHandle implements LockHandle {
+
+    private final String name;
+    private final LockMode mode;
+    private final String owner;
+    private final boolean tracked;
+    private final LockBackend backend;
+    private final AsyncLockAcquirer acquirer;
+    private final long acquiredAt = System.nanoTime();
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    AsyncLockHandle(String name, LockMode mode, String owner, boolean tracked, LockBackend backend,
+                    AsyncLockAcquirer acquirer) {
+        this.name = name;
+        this.mode = mode;
+        this.owner = owner;
+        this.tracked = tracked;
+        this.backend = backend;
+        this.acquirer = acquirer;
+    }
+
+    /**
+     * Returns the name of the held lock.
+     *
+     * @return The lock name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the mode in which the lock is held.
+     *
+     * @return The lock mode.
+     */
+    public LockMode getMode() {
+        return mode;
+    }
+
+    @Override
+    public Set<String> getLockNames() {
+        return Collections.singleton(name);
+    }
+
+    @Override
+    public void release() {
+        markReleased();
+        boolean held;
+        try {
+            held = backend.release(owner, Collections.singletonMap(name, mode)).isEmpty();
+        } finally {
+            acquirer.released(this);
+        }
+        if (!held) {
+            throw new IllegalMonitorStateException(mode + " lock " + name + " was not held by handle " + owner);
+        }
+    }
+
+    /**
+     * Releases the lock without blocking the calling thread.
+     *
+     * @return The future completed once the lock is released; completed exceptionally with
+     * {@link IllegalMonitorStateException} if the lock was no longer held.
+     */
+    public CompletableFuture<Void> releaseAsync() {
+        markReleased();
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        backend.releaseAsync(owner, name, mode).whenComplete((held, t) -> {
+            acquirer.released(this);
+            if (t != null) {
+                result.completeExceptionally(t);
+            } else if (held) {
+                result.complete(null);
+            } else {
+                result.completeExceptionally(new IllegalMonitorStateException(mode + " lock " + name
+                        + " was not held by handle " + owner));
+            }
+        });
+        return result;
+    }
+
+    boolean isTracked() {
+        return tracked;
+    }
+
+    long getHoldNanos() {
+        return System.nanoTime() - acquiredAt;
+    }
+
+    private void markReleased() {
+        if (!released.compareAndSet(false, true)) {
+            throw new IllegalMonitorStateException(mode + " lock " + name + " was already released by handle " + owner);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncLockHandle{name='" + name + "', mode=" + mode + ", owner='" + owner + "', held "
+                + TimeUnit.NANOSECONDS.toMillis(getHoldNanos()) + " ms}";
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+import com.hazelcast.map.listener.EntryUpdatedListener;
+import com.hazelcast.query.Predicate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps exclusive locks on the client for a short grace period after they were released, so that repeated
+ * acquisitions of the same name by this JVM do not cost any round trip.
+ * <p>
+ * The locks live in the namespace of {@link DistributedReadWriteLock} and are held by an owner identifying this
+ * retainer rather than a thread; local threads are excluded by a fair local lock of the name. When an operation
+ * finishes, the distributed lock is kept for the grace period and the next local acquisition within it re-enters
+ * locally. A lock is given up after the grace period, when half of its lease has been used up, or as soon as
+ * the server signals that another owner waits for it: the first rejected acquisition marks the entry
+ * (see {@link LockState#requestRevocation()}) and the update is pushed to the retainer by an entry listener
+ * filtered on the server, so that other clients never wait for more than one operation of this JVM.
+ * </p>
+ *
+ * <p>
+ * The thread using a biased lock takes the other locks of the name through the lock service without waiting for
+ * the retainer, see {@link ThreadHoldsLockBackend}.
+ * </p>
+ */
+class BiasedLockRetainer {
+
+    private static final ILogger LOGGER = Logger.getLogger(BiasedLockRetainer.class);
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ConcurrentMap<String, BiasedLock> biasedLocks = new ConcurrentHashMap<>();
+    private final IMap<String, LockState> map;
+    private final String owner;
+    private final long leaseMillis;
+    private final long graceNanos;
+    private final ScheduledExecutorService scheduler;
+    private final LockStatistics statistics;
+    private final String listenerId;
+
+    BiasedLockRetainer(HazelcastInstance hzInstance, long leaseTimeSecs, long graceMillis,
+                       ScheduledExecutorService scheduler, LockStatistics statistics) {
+        this.map = hzInstance.getMap(DistributedReadWriteLock.MAP_NAME);
+        this.owner = DistributedReadWriteLock.ownerPrefix(hzInstance) + "b" + SEQUENCE.incrementAndGet();
+        this.leaseMillis = TimeUnit.SECONDS.toMillis(leaseTimeSecs);
+        this.graceNanos = TimeUnit.MILLISECONDS.toNanos(graceMillis);
+        this.scheduler = scheduler;
+        this.statistics = statistics;
+        this.listenerId = map.addEntryListener((EntryUpdatedListener<String, LockState>) this::revocationRequested,
+                new RevocationPredicate(owner), false);
+    }
+
+    /**
+     * Returns the owner identifier of the locks held by this retainer.
+     */
+    String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Acquires the local lock and, unless it is still retained, the distributed lock.
+     *
+     * @param lockName  The name of the lock.
+     * @param waitNanos The maximal time to wait for both locks.
+     * @return The acquired lock, or {@code null} if the wait time elapsed.
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     * @throws DeadlockException    If waiting for the distributed lock would deadlock.
+     * @throws OverloadedException  If the server rejected waiting for the distributed lock.
+     */
+    BiasedLock tryLock(String lockName, long waitNanos)
+            throws InterruptedException, DeadlockException, OverloadedException {
+        long deadline = System.nanoTime() + waitNanos;
+        BiasedLock biased = retain(lockName);
+        boolean acquired = false;
+        try {
+            if (!biased.lock.tryLock(waitNanos, TimeUnit.NANOSECONDS)) {
+                return null;
+            }
+            if (biased.lock.getHoldCount() > 1) {
+                // reentrant acquisition by the thread already holding the lock
+                acquired = true;
+                return biased;
+            }
+            if (biased.held) {
+                if (!biased.revoked && System.nanoTime() < biased.retainUntil) {
+                    statistics.recordHandoff();
+                    acquired = true;
+                    return biased;
+                }
+                releaseDistributed(biased);
+            }
+            AcquireResult result = acquireDistributed(lockName, deadline);
+            if (result == AcquireResult.GRANTED) {
+                biased.held = true;
+                biased.revoked = false;
+                biased.retainUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(leaseMillis) / 2;
+                acquired = true;
+                return biased;
+            }
+            biased.lock.unlock();
+            if (result == AcquireResult.DEADLOCK) {
+                throw new DeadlockException("Deadlock detected while waiting for lock " + lockName);
+            }
+            if (result == AcquireResult.OVERLOADED) {
+                throw new OverloadedException("Too many waiters for lock " + lockName);
+            }
+            return null;
+        } finally {
+            if (!acquired) {
+                release(biased);
+            }
+        }
+    }
+
+    /**
+     * Releases the local lock; the distributed lock is kept for the grace period unless it was revoked.
+     *
+     * @param biased The lock returned by {@link #tryLock}.
+     */
+    void unlock(BiasedLock biased) {
+        try {
+            if (biased.lock.getHoldCount() == 1 && biased.held) {
+                if (biased.revoked || graceNanos == 0) {
+                    releaseDistributed(biased);
+                } else {
+                    long releasedAt = System.nanoTime();
+                    biased.releasedAt = releasedAt;
+                    scheduler.schedule(() -> expire(biased, releasedAt), graceNanos, TimeUnit.NANOSECONDS);
+                }
+            }
+        } finally {
+            biased.lock.unlock();
+            release(biased);
+        }
+    }
+
+    /**
+     * Releases all retained locks and stops listening for revocations.
+     */
+    void shutdown() {
+        map.removeEntryListener(listenerId);
+        for (BiasedLock biased : biasedLocks.values()) {
+            giveUp(biased);
+        }
+    }
+
+    private AcquireResult acquireDistributed(String lockName, long deadline) throws InterruptedException {
+        long backoff = MIN_BACKOFF_NANOS;
+        AcquireResult result = null;
+        try {
+            while (true) {
+                result = (AcquireResult) map.executeOnKey(lockName,
+                        LockStateProcessor.acquireBiased(owner, LockMode.EXCLUSIVE, leaseMillis));
+                if (result != AcquireResult.REJECTED) {
+                    return result;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return result;
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.min(backoff, remaining));
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+            }
+        } finally {
+            if (result != AcquireResult.GRANTED) {
+                // the waiters behind the retainer need not wait until its wait goes stale
+                map.submitToKey(lockName, LockStateProcessor.cancel(owner));
+            }
+        }
+    }
+
+    private void releaseDistributed(BiasedLock biased) {
+        biased.held = false;
+        if (!(Boolean) map.executeOnKey(biased.name, LockStateProcessor.release(owner, LockMode.EXCLUSIVE))) {
+            LOGGER.warning("Lock " + biased.name + " was not held on release, lease probably expired");
+        }
+    }
+
+    private void expire(BiasedLock biased, long releasedAt) {
+        if (biased.releasedAt == releasedAt) {
+            giveUp(biased);
+        }
+    }
+
+    private void revocationRequested(EntryEvent<String, LockState> event) {
+        BiasedLock biased = biasedLocks.get(event.getKey());
+        if (biased != null) {
+            biased.revoked = true;
+            // the event thread must not block on the cluster
+            scheduler.execute(() -> giveUp(biased));
+        }
+    }
+
+    /**
+     * Releases the retained distributed lock unless a local thread uses it; that thread releases it on unlock
+     * if it was revoked.
+     */
+    private void giveUp(BiasedLock biased) {
+        if (!biased.lock.tryLock()) {
+            return;
+        }
+        try {
+            if (biased.held) {
+                releaseDistributed(biased);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warning("Could not release retained lock " + biased.name, e);
+        } finally {
+            biased.lock.unlock();
+        }
+        biasedLocks.computeIfPresent(biased.name, (name, current) -> current.users == 0 && !current.held ? null : current);
+    }
+
+    private BiasedLock retain(String lockName) {
+        return biasedLocks.compute(lockName, (name, biased) -> {
+            if (biased == null) {
+                biased = new BiasedLock(name);
+            }
+            biased.users++;
+            return biased;
+        });
+    }
+
+    private void release(BiasedLock biased) {
+        biasedLocks.computeIfPresent(biased.name,
+                (name, current) -> --current.users == 0 && !current.held ? null : current);
+    }
+
+    /**
+     * Biased lock of a single name. The user count is guarded by the map, the remaining state by {@link #lock};
+     * the flags are also read without the lock.
+     */
+    static final class BiasedLock {
+        private final String name;
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private int users;
+        private volatile boolean held;
+        private volatile boolean revoked;
+        private long retainUntil;
+        private volatile long releasedAt;
+
+        private BiasedLock(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Selects the updates of the lock entries which ask the given owner to give its biased lock up.
+     * Evaluated on the server, so that the retainer is notified only about its own revoked locks.
+     */
+    static final class RevocationPredicate implements Predicate<String, LockState> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String owner;
+
+        RevocationPredicate(String owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public boolean apply(Map.Entry<String, LockState> entry) {
+            LockState state = entry.getValue();
+            return state != null && state.isRevocationRequested(owner);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Streaming top-K of the most contended lock names, weighted by the time spent waiting.
+ * <p>
+ * Implements the Space-Saving algorithm with a fixed number of counters: a name which is not tracked yet replaces
+ * the name with the smallest weight and inherits its weight, so the memory stays constant regardless of the
+ * number of distinct names and heavy hitters are never missed (their weight may only be overestimated by
+ * the inherited part). Only contended acquisitions are recorded, so the short critical section does not
+ * matter compared to the wait which has already happened.
+ * </p>
+ */
+public class ContentionTopK {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final String[] names;
+    private final long[] weights;
+    private final long[] counts;
+    private final Map<String, Integer> index;
+    private int size;
+
+    /**
+     * Creates the top-K tracker.
+     *
+     * @param capacity The number of tracked names; should be several times the number of reported names.
+     */
+    public ContentionTopK(int capacity) {
+        this.names = new String[capacity];
+        this.weights = new long[capacity];
+        this.counts = new long[capacity];
+        this.index = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Records a contended acquisition.
+     *
+     * @param name   The lock name.
+     * @param weight The weight of the event, e.g. the wait time in nanoseconds.
+     */
+    public void record(String name, long weight) {
+        lock.lock();
+        try {
+            Integer slot = index.get(name);
+            if (slot == null) {
+                if (size < names.length) {
+                    slot = size++;
+                } else {
+                    slot = 0;
+                    for (int i = 1; i < size; i++) {
+                        if (weights[i] < weights[slot]) {
+                            slot = i;
+                        }
+                    }
+                    index.remove(names[slot]);
+                    counts[slot] = 0;
+                }
+                names[slot] = name;
+                index.put(name, slot);
+            }
+            weights[slot] += weight;
+            counts[slot]++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the most contended names in descending order of their weight.
+     *
+     * @param k The number of names to return.
+     * @return Entries formatted as {@code name=weight/count}.
+     */
+    public List<String> top(int k) {
+        lock.lock();
+        try {
+            List<Integer> slots = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                slots.add(i);
+            }
+            slots.sort((a, b) -> Long.compare(weights[b], weights[a]));
+            List<String> result = new ArrayList<>(Math.min(k, size));
+            for (int i = 0; i < Math.min(k, size); i++) {
+                int slot = slots.get(i);
+                result.add(names[slot] + "=" + weights[slot] + "/" + counts[slot]);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Thrown when waiting for a lock would deadlock, i.e. when the owners holding the requested lock directly or
+ * indirectly wait for a lock held by the caller. The caller is chosen as the victim and fails immediately
+ * instead of waiting for the whole wait time; releasing its locks lets the other owners proceed.
+ * <p>
+ * It extends {@link TimeoutException}, so callers handling timeouts of the lock operations handle deadlocks as well.
+ * </p>
+ */
+public class DeadlockException extends TimeoutException {
+
+    private static final long serialVersionUID = 1L;
+
+    public DeadlockException(String message) {
+        super(message);
+    }
+}
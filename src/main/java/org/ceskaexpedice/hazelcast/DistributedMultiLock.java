@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * All-or-nothing lock of a set of names of the {@link DistributedReadWriteLock} namespace.
+ * <p>
+ * Every name is locked in its own mode, by default {@link LockMode#EXCLUSIVE}; a hierarchy of names is locked
+ * with intention modes on the ancestors, see {@link #hierarchy(List, LockMode)}.
+ * </p>
+ *
+ * <p>
+ * The names are kept in their canonical (natural) order and all of them are requested by a single attempt of
+ * the {@link LockBackend}, with the Hazelcast backend a single {@link com.hazelcast.core.IMap#executeOnKeys} call,
+ * which Hazelcast groups into one operation per partition owner. If any of the locks is not available, the ones
+ * acquired by the attempt are released again and the attempt is repeated later. The owner therefore never holds
+ * a part of the set while waiting for the rest, so two multi-locks with overlapping names cannot deadlock.
+ * </p>
+ *
+ * <p>
+ * This is an all-or-nothing acquisition with retries, not an ordered one: the names are not acquired one by one
+ * in their canonical order. The retries are separated by a randomized backoff, but under heavy contention
+ * overlapping multi-locks may keep failing each other (livelock) until their wait time elapses.
+ * </p>
+ *
+ * <p>
+ * As with {@link DistributedReadWriteLock}, the owner is the calling thread; the lock must be released
+ * by the thread which acquired it.
+ * </p>
+ */
+public class DistributedMultiLock implements LockHandle {
+
+    private final SortedMap<String, LockMode> modes;
+    private final Set<String> names;
+    private final LockBackend backend;
+
+    DistributedMultiLock(Collection<String> names, LockBackend backend) {
+        this(exclusive(names), backend);
+    }
+
+    DistributedMultiLock(Map<String, LockMode> modes, LockBackend backend) {
+        this.modes = Collections.unmodifiableSortedMap(new TreeMap<>(modes));
+        this.names = this.modes.keySet();
+        this.backend = backend;
+    }
+
+    /**
+     * Returns the modes locking the last name of the path in the given mode and all its ancestors
+     * in the corresponding {@link LockMode#intention() intention mode}.
+     *
+     * @param path The path of names from the root (e.g. a monograph) to the locked name (e.g. its page).
+     * @param mode The mode of the last name of the path.
+     * @return The modes of all names of the path.
+     * @throws IllegalArgumentException If the path is empty.
+     */
+    static Map<String, LockMode> hierarchy(List<String> path, LockMode mode) {
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("Lock path must not be empty");
+        }
+        Map<String, LockMode> modes = new TreeMap<>();
+        for (String ancestor : path.subList(0, path.size() - 1)) {
+            modes.put(ancestor, mode.intention());
+        }
+        modes.put(path.get(path.size() - 1), mode);
+        return modes;
+    }
+
+    private static Map<String, LockMode> exclusive(Collection<String> names) {
+        Map<String, LockMode> modes = new TreeMap<>();
+        for (String name : names) {
+            modes.put(name, LockMode.EXCLUSIVE);
+        }
+        return modes;
+    }
+
+    @Override
+    public Set<String> getLockNames() {
+        return names;
+    }
+
+    /**
+     * Returns the mode in which every name is locked.
+     *
+     * @return The modes by name.
+     */
+    public Map<String, LockMode> getModes() {
+        return modes;
+    }
+
+    /**
+     * Acquires the locks of all names, waiting at most the given time.
+     *
+     * @param time The maximal time to wait.
+     * @param unit The unit of the wait time.
+     * @return {@code true} if all locks were acquired, {@code false} if the wait time elapsed, if waiting would
+     * deadlock or if the server is overloaded (no lock is held then).
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        return acquire(time, unit) == AcquireResult.GRANTED;
+    }
+
+    /**
+     * Acquires the locks as {@link #tryLock(long, TimeUnit)} does, distinguishing a detected deadlock
+     * and an overloaded server from a timeout.
+     */
+    AcquireResult acquire(long time, TimeUnit unit) throws InterruptedException {
+        return backend.acquire(currentOwner(), modes, unit.toNanos(time));
+    }
+
+    /**
+     * Releases the locks of all names.
+     *
+     * @throws IllegalMonitorStateException If any of the locks was not held by the calling thread.
+     */
+    public void unlock() {
+        Set<String> notHeld = backend.release(currentOwner(), modes);
+        if (!notHeld.isEmpty()) {
+            String name = notHeld.iterator().next();
+            throw new IllegalMonitorStateException("Current thread does not hold " + modes.get(name) + " lock " + name);
+        }
+    }
+
+    @Override
+    public void release() {
+        unlock();
+    }
+
+    private String currentOwner() {
+        return DistributedReadWriteLock.threadOwner(backend.getOwnerPrefix());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.core.HazelcastInstance;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distributed read/write lock backed by an entry of the {@value #MAP_NAME} map, or by the JVM with the in-process
+ * backend (see {@link LockBackend}).
+ * <p>
+ * Any number of owners may hold the lock in {@link LockMode#SHARED} mode at the same time, while
+ * {@link LockMode#EXCLUSIVE} mode excludes all other owners. The owner is the calling thread of the
+ * calling Hazelcast instance (of the lock service with the in-process backend), so the lock is reentrant in both
+ * modes. An owner holding a read lock may upgrade it by acquiring the write lock (granted once it is the only
+ * reader) and an owner holding a write lock may downgrade it by acquiring the read lock and releasing the write lock.
+ * </p>
+ *
+ * <p>
+ * Every hold has a lease; holds of crashed owners expire after the lease and do not block others forever.
+ * </p>
+ *
+ * <p>
+ * This namespace holds all locks of {@link LockService}, including those of {@link LockService#doWithLock}, which
+ * takes the write lock. Only an {@code ILock} obtained directly from Hazelcast is not excluded by a lock of the same
+ * name.
+ * </p>
+ */
+public class DistributedReadWriteLock {
+
+    /**
+     * Name of the map holding the state of the read/write locks.
+     */
+    public static final String MAP_NAME = "hazelcast-locks-rw";
+
+    private final String name;
+    private final LockBackend backend;
+
+    DistributedReadWriteLock(String name, LockBackend backend) {
+        this.name = name;
+        this.backend = backend;
+    }
+
+    /**
+     * Returns the name of the lock.
+     *
+     * @return The lock name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Acquires the lock in the given mode, waiting at most the given time.
+     * <p>
+     * With the Hazelcast backend, waiting is done by repeated attempts with an exponential backoff (1 ms up to 100 ms).
+     * </p>
+     *
+     * @param mode The requested mode.
+     * @param time The maximal time to wait.
+     * @param unit The unit of the wait time.
+     * @return {@code true} if the lock was acquired, {@code false} if the wait time elapsed or if waiting
+     * would deadlock (see {@link WaitForGraph}).
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    public boolean tryLock(LockMode mode, long time, TimeUnit unit) throws InterruptedException {
+        return acquire(mode, time, unit) == AcquireResult.GRANTED;
+    }
+
+    /**
+     * Acquires the lock as {@link #tryLock(LockMode, long, TimeUnit)} does, distinguishing a detected deadlock
+     * and an overloaded server from a timeout.
+     */
+    AcquireResult acquire(LockMode mode, long time, TimeUnit unit) throws InterruptedException {
+        return backend.acquire(currentOwner(), Collections.singletonMap(name, mode), unit.toNanos(time));
+    }
+
+    /**
+     * Releases one hold of the lock in the given mode.
+     *
+     * @param mode The released mode.
+     * @throws IllegalMonitorStateException If the calling thread does not hold the lock in the mode.
+     */
+    public void unlock(LockMode mode) {
+        if (!backend.release(currentOwner(), Collections.singletonMap(name, mode)).isEmpty()) {
+            throw new IllegalMonitorStateException("Current thread does not hold " + mode + " lock " + name);
+        }
+    }
+
+    /**
+     * Acquires the read lock, waiting at most the given time.
+     *
+     * @param time The maximal time to wait.
+     * @param unit The unit of the wait time.
+     * @return {@code true} if the lock was acquired.
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    public boolean tryReadLock(long time, TimeUnit unit) throws InterruptedException {
+        return tryLock(LockMode.SHARED, time, unit);
+    }
+
+    /**
+     * Acquires the write lock, waiting at most the given time. When called by a holder of the read lock,
+     * the lock is upgraded as soon as there are no other readers.
+     *
+     * @param time The maximal time to wait.
+     * @param unit The unit of the wait time.
+     * @return {@code true} if the lock was acquired.
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    public boolean tryWriteLock(long time, TimeUnit unit) throws InterruptedException {
+        return tryLock(LockMode.EXCLUSIVE, time, unit);
+    }
+
+    /**
+     * Releases one hold of the read lock.
+     */
+    public void unlockRead() {
+        unlock(LockMode.SHARED);
+    }
+
+    /**
+     * Releases one hold of the write lock.
+     */
+    public void unlockWrite() {
+        unlock(LockMode.EXCLUSIVE);
+    }
+
+    /**
+     * Returns the prefix of the owner identifiers of the given instance, owners are identified
+     * by the instance UUID and the thread id.
+     */
+    static String ownerPrefix(HazelcastInstance hzInstance) {
+        return hzInstance.getLocalEndpoint().getUuid() + ":";
+    }
+
+    private String currentOwner() {
+        return threadOwner(backend.getOwnerPrefix());
+    }
+
+    /**
+     * Returns the owner identifier of the calling thread.
+     */
+    static String threadOwner(String ownerPrefix) {
+        return ownerPrefix + currentThreadId();
+    }
+
+    /**
+     * Returns the id of the calling thread.
+     * <p>
+     * {@code Thread.getId()} is deprecated since JDK 19 in favour of {@code Thread.threadId()}, which does not exist
+     * in Java 17 supported by this library; both return the same value.
+     * </p>
+     */
+    @SuppressWarnings("deprecation")
+    static long currentThreadId() {
+        return Thread.currentThread().getId();
+    }
+}
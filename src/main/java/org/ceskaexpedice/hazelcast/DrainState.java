@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+/**
+ * Marks the last data member of a lock cluster which is being drained before its shutdown, see
+ * {@link HazelcastServerNode#shutdownGracefully(long)}.
+ * <p>
+ * While the member drains, the {@link LockStateProcessor}s of its partitions reject acquisitions of owners which
+ * do not hold the lock yet; the clients keep polling until the member is gone and the cluster is started again.
+ * Holders may still re-enter, renew and release their locks, so that the member leaves with as few lost locks
+ * as possible. The state is shared through the user context of
+ * the member under {@link #USER_CONTEXT_KEY}.
+ * </p>
+ */
+final class DrainState {
+
+    /**
+     * The key of the state in the user context of the Hazelcast member.
+     */
+    static final String USER_CONTEXT_KEY = "org.ceskaexpedice.hazelcast.DrainState";
+
+    private volatile boolean draining;
+
+    boolean isDraining() {
+        return draining;
+    }
+
+    void start() {
+        draining = true;
+    }
+}
@@ -16,8 +16,8 @@
  */
 package org.ceskaexpedice.hazelcast;
 
-import com.hazelcast.client.HazelcastClient;
 import com.hazelcast.client.config.ClientConfig;
+import com.hazelcast.client.config.ClientNetworkConfig;
 import com.hazelcast.client.config.XmlClientConfigBuilder;
 import com.hazelcast.config.GroupConfig;
 import com.hazelcast.core.HazelcastInstance;
@@ -35,11 +35,13 @@ import java.io.IOException;
  *
  * <p>
  * The Hazelcast client configuration can either be loaded from a file or created programmatically.
- * This class ensures that only one instance of the Hazelcast client is created at a time.
+ * Client nodes with the same effective configuration share one Hazelcast client (see {@link HazelcastClientRegistry}),
+ * so the JVM keeps one set of connections and threads per cluster no matter how many components create a node.
+ * The shared client is shut down when the last node using it is shut down; it must not be shut down directly.
  * </p>
  *
  * <p>
- * This class is thread-safe and ensures the Hazelcast client instance is only created once.
+ * This class is thread-safe.
  * </p>
  *
  * @author pavels
@@ -47,27 +49,41 @@ import java.io.IOException;
 public class HazelcastClientNode {
 
     private static final ILogger LOGGER = Logger.getLogger(HazelcastClientNode.class);
+    private static final String IO_INPUT_THREAD_COUNT = "hazelcast.client.io.input.thread.count";
+    private static final String IO_OUTPUT_THREAD_COUNT = "hazelcast.client.io.output.thread.count";
+    private static final String INVOCATION_TIMEOUT_SECONDS = "hazelcast.client.invocation.timeout.seconds";
+    private static final String HEARTBEAT_INTERVAL = "hazelcast.client.heartbeat.interval";
+    private static final String HEARTBEAT_TIMEOUT = "hazelcast.client.heartbeat.timeout";
+
     private HazelcastInstance hzInstance;
 
     /**
      * Ensures that a Hazelcast client node is created and connected to the Hazelcast cluster.
      * <p>
-     * This method creates a new Hazelcast client instance if one does not already exist. It loads the configuration
-     * from the specified configuration file, or constructs it programmatically if no file is provided.
+     * This method reuses the client of another node with the same effective configuration, or creates a new Hazelcast
+     * client instance if there is none. It loads the configuration from the specified configuration file, or constructs
+     * it programmatically if no file is provided. A client previously obtained by this node is released.
      * </p>
      *
      * @param configuration The configuration containing details such as the Hazelcast client config file and user credentials.
+     * @throws IllegalStateException If a client of the same instance and cluster is already running with different
+     *                               settings, see {@link HazelcastClientRegistry}.
      */
-    public void ensureHazelcastNode(HazelcastConfiguration configuration) {
+    public synchronized void ensureHazelcastNode(HazelcastConfiguration configuration) {
         ClientConfig config = createHazelcastConfig(configuration);
-        hzInstance = HazelcastClient.newHazelcastClient(config);
+        HazelcastInstance previous = hzInstance;
+        hzInstance = HazelcastClientRegistry.acquire(config, configuration.getHazelcastClientConfigFile());
+        if (previous != null) {
+            HazelcastClientRegistry.release(previous);
+        }
     }
 
     /**
      * Creates the Hazelcast client configuration based on the provided configuration details.
      * <p>
      * This method either loads the configuration from an XML file if provided, or constructs the configuration
-     * programmatically if no file is specified.
+     * programmatically if no file is specified. Either way the client partitions colocated lock names
+     * (see {@link LockNames}) as the servers do.
      * </p>
      *
      * @param configuration The configuration containing details such as the config file path and user credentials.
@@ -87,34 +103,70 @@ public class HazelcastClientNode {
             config.setInstanceName(configuration.getHazelcastInstance());
             // adding addresses
             configuration.getAddresses().forEach(config.getNetworkConfig()::addAddress);
-            /* TODO the following config can be used for monitor thread
-            config.setConnectionAttemptLimit(1);
-            config.setConnectionAttemptPeriod(1000);
-             */
             GroupConfig groupConfig = config.getGroupConfig();
             groupConfig.setName(configuration.getHazelcastUser());
+            applyPerformanceSettings(config, configuration);
         }
+        usePartitioningStrategy();
         return config;
     }
 
+    /**
+     * Lets the clients created from now on partition the keys of colocated lock names as the servers do.
+     * <p>
+     * A Hazelcast 3.x client takes its partitioning strategy from the system property only, not from the client
+     * configuration, so the property is set for the whole JVM unless the application sets it. Names without
+     * the separator of {@link LockNames} are partitioned as without the strategy.
+     * </p>
+     */
+    private static void usePartitioningStrategy() {
+        String strategy = System.getProperty(LockNames.PARTITIONING_STRATEGY_PROPERTY);
+        if (strategy == null) {
+            System.setProperty(LockNames.PARTITIONING_STRATEGY_PROPERTY, LockNames.PARTITIONING_STRATEGY);
+        } else if (!strategy.equals(LockNames.PARTITIONING_STRATEGY)) {
+            LOGGER.warning("Partitioning strategy " + strategy + " set by the application, colocated lock names"
+                    + " are not placed on the partitions of their partition keys");
+        }
+    }
+
+    /**
+     * Applies the client performance settings of the configuration, see {@link HazelcastConfiguration#isClientSmartRouting()}
+     * and the following getters.
+     */
+    private static void applyPerformanceSettings(ClientConfig config, HazelcastConfiguration configuration) {
+        ClientNetworkConfig networkConfig = config.getNetworkConfig();
+        networkConfig.setSmartRouting(configuration.isClientSmartRouting());
+        networkConfig.setConnectionTimeout((int) configuration.getClientConnectionTimeoutMillis());
+        networkConfig.setConnectionAttemptLimit(configuration.getClientConnectionAttemptLimit());
+        networkConfig.setConnectionAttemptPeriod((int) configuration.getClientConnectionAttemptPeriodMillis());
+        if (configuration.getClientIoThreads() > 0) {
+            config.setProperty(IO_INPUT_THREAD_COUNT, String.valueOf(configuration.getClientIoThreads()));
+            config.setProperty(IO_OUTPUT_THREAD_COUNT, String.valueOf(configuration.getClientIoThreads()));
+        }
+        config.setProperty(INVOCATION_TIMEOUT_SECONDS, String.valueOf(configuration.getClientInvocationTimeoutSecs()));
+        config.setProperty(HEARTBEAT_INTERVAL, String.valueOf(configuration.getClientHeartbeatIntervalMillis()));
+        config.setProperty(HEARTBEAT_TIMEOUT, String.valueOf(configuration.getClientHeartbeatTimeoutMillis()));
+    }
+
     /**
      * Retrieves the Hazelcast client instance.
      *
      * @return The Hazelcast client instance.
      */
-    public HazelcastInstance getHzInstance() {
+    public synchronized HazelcastInstance getHzInstance() {
         return hzInstance;
     }
 
     /**
-     * Shuts down the running Hazelcast client instance, if one is currently active.
+     * Releases the Hazelcast client instance of this node, if one is currently active.
      * <p>
-     * This method ensures that the Hazelcast client instance is properly shut down and its resources are released.
+     * The client is shut down and its resources are released once no other node uses it.
      * </p>
      */
-    public void shutdown() {
+    public synchronized void shutdown() {
         if (hzInstance != null) {
-            hzInstance.shutdown();
+            HazelcastClientRegistry.release(hzInstance);
+            hzInstance = null;
         }
     }
 }
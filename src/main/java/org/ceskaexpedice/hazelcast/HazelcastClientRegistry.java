@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.client.HazelcastClient;
+import com.hazelcast.client.config.ClientConfig;
+import com.hazelcast.client.config.ClientNetworkConfig;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Shares Hazelcast clients among the {@link HazelcastClientNode}s of the JVM.
+ * <p>
+ * Every client opens its own connections, heartbeat and event threads, so components connecting to the same cluster
+ * get one client, keyed by the identity of the client and its cluster (instance name, group name and member
+ * addresses). The client is reference-counted: it is created by the first {@link #acquire(ClientConfig, String)} and
+ * shut down by the {@link #release(HazelcastInstance)} matching the last acquisition.
+ * </p>
+ *
+ * <p>
+ * Hazelcast allows a single client per instance name, so the remaining settings (the client XML file, smart routing,
+ * connection timeouts and attempts, and the properties such as heartbeats, invocation timeout and IO threads) cannot
+ * differ among the users of a client; an acquisition with settings different from those of the running client
+ * is rejected.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe.
+ * </p>
+ */
+final class HazelcastClientRegistry {
+
+    private static final ILogger LOGGER = Logger.getLogger(HazelcastClientRegistry.class);
+    private static final Map<ClientKey, SharedClient> CLIENTS = new HashMap<>();
+
+    private HazelcastClientRegistry() {
+    }
+
+    /**
+     * Returns the client for the configuration, creating it if no running client of the same instance and cluster
+     * exists. Each call must be paired with a {@link #release(HazelcastInstance)}.
+     *
+     * @param config     The client configuration.
+     * @param configFile The client XML file the configuration was loaded from, {@code null} if created in code.
+     * @return The shared client.
+     * @throws IllegalStateException If the running client of the same instance and cluster has different settings.
+     */
+    static synchronized HazelcastInstance acquire(ClientConfig config, String configFile) {
+        if (config == null) {
+            // the default configuration is located by Hazelcast, not shared
+            return HazelcastClient.newHazelcastClient(config);
+        }
+        ClientKey key = new ClientKey(config);
+        ClientSettings settings = new ClientSettings(config, configFile);
+        SharedClient client = CLIENTS.get(key);
+        if (client == null || !client.instance.getLifecycleService().isRunning()) {
+            client = new SharedClient(HazelcastClient.newHazelcastClient(config), settings);
+            CLIENTS.put(key, client);
+        } else if (!client.settings.equals(settings)) {
+            throw new IllegalStateException("Hazelcast client " + client.instance.getName()
+                    + " is already running with settings " + client.settings + ", cannot share it with settings "
+                    + settings);
+        } else {
+            LOGGER.fine("Reusing Hazelcast client " + client.instance.getName());
+        }
+        client.references++;
+        return client.instance;
+    }
+
+    /**
+     * Releases a client returned by {@link #acquire(ClientConfig, String)}; the last release shuts the client down.
+     *
+     * @param instance The released client.
+     */
+    static synchronized void release(HazelcastInstance instance) {
+        for (Map.Entry<ClientKey, SharedClient> entry : CLIENTS.entrySet()) {
+            SharedClient client = entry.getValue();
+            if (client.instance == instance) {
+                if (--client.references == 0) {
+                    CLIENTS.remove(entry.getKey());
+                    instance.shutdown();
+                }
+                return;
+            }
+        }
+        // not shared (anymore), e.g. replaced after it was shut down elsewhere
+        instance.shutdown();
+    }
+
+    /**
+     * Returns the number of acquisitions of the client not released yet.
+     *
+     * @param instance The client.
+     * @return The number of references, {@code 0} if the client is not registered.
+     */
+    static synchronized int getReferences(HazelcastInstance instance) {
+        for (SharedClient client : CLIENTS.values()) {
+            if (client.instance == instance) {
+                return client.references;
+            }
+        }
+        return 0;
+    }
+
+    private static final class SharedClient {
+
+        private final HazelcastInstance instance;
+        private final ClientSettings settings;
+        private int references;
+
+        private SharedClient(HazelcastInstance instance, ClientSettings settings) {
+            this.instance = instance;
+            this.settings = settings;
+        }
+    }
+
+    /**
+     * The settings of a client configuration which must be the same for all users of a shared client.
+     */
+    private static final class ClientSettings {
+
+        private final String configFile;
+        private final boolean smartRouting;
+        private final int connectionTimeout;
+        private final int connectionAttemptLimit;
+        private final int connectionAttemptPeriod;
+        private final SortedMap<String, String> properties = new TreeMap<>();
+
+        private ClientSettings(ClientConfig config, String configFile) {
+            ClientNetworkConfig networkConfig = config.getNetworkConfig();
+            this.configFile = configFile;
+            this.smartRouting = networkConfig.isSmartRouting();
+            this.connectionTimeout = networkConfig.getConnectionTimeout();
+            this.connectionAttemptLimit = networkConfig.getConnectionAttemptLimit();
+            this.connectionAttemptPeriod = networkConfig.getConnectionAttemptPeriod();
+            Properties configProperties = config.getProperties();
+            for (String name : configProperties.stringPropertyNames()) {
+                properties.put(name, configProperties.getProperty(name));
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ClientSettings)) {
+                return false;
+            }
+            ClientSettings that = (ClientSettings) o;
+            return smartRouting == that.smartRouting
+                    && connectionTimeout == that.connectionTimeout
+                    && connectionAttemptLimit == that.connectionAttemptLimit
+                    && connectionAttemptPeriod == that.connectionAttemptPeriod
+                    && Objects.equals(configFile, that.configFile)
+                    && properties.equals(that.properties);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(configFile, smartRouting, connectionTimeout, connectionAttemptLimit,
+                    connectionAttemptPeriod, properties);
+        }
+
+        @Override
+        public String toString() {
+            return "{configFile=" + configFile +
+                    ", smartRouting=" + smartRouting +
+                    ", connectionTimeout=" + connectionTimeout +
+                    ", connectionAttemptLimit=" + connectionAttemptLimit +
+                    ", connectionAttemptPeriod=" + connectionAttemptPeriod +
+                    ", properties=" + properties +
+                    '}';
+        }
+    }
+
+    /**
+     * The parts of a client configuration which identify the cluster and the client, see {@link ClientSettings}
+     * for the rest.
+     */
+    private static final class ClientKey {
+
+        private final String instanceName;
+        private final String groupName;
+        private final List<String> addresses;
+
+        private ClientKey(ClientConfig config) {
+            this.instanceName = config.getInstanceName();
+            this.groupName = config.getGroupConfig().getName();
+            this.addresses = new ArrayList<>(config.getNetworkConfig().getAddresses());
+            Collections.sort(addresses);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ClientKey)) {
+                return false;
+            }
+            ClientKey that = (ClientKey) o;
+            return Objects.equals(instanceName, that.instanceName)
+                    && Objects.equals(groupName, that.groupName)
+                    && addresses.equals(that.addresses);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(instanceName, groupName, addresses);
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.ceskaexpedice.hazelcast;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Represents the configuration settings for Hazelcast nodes (both server and client).
@@ -35,6 +36,10 @@ import java.util.List;
  *     <li>Path to the Hazelcast client configuration file</li>
  *     <li>Instance name for the Hazelcast node</li>
  *     <li>Group name for the Hazelcast cluster</li>
+ *     <li>Server performance profile (partitions, operation and IO threads, lock backups), which can also be set
+ *     by {@code HAZELCAST_*} environment variables</li>
+ *     <li>Client performance settings (routing, IO threads, timeouts, heartbeats and reconnection), which can also
+ *     be set by {@code HAZELCAST_CLIENT_*} environment variables</li>
  * </ul>
  * </p>
  *
@@ -45,8 +50,44 @@ import java.util.List;
  * @author pavels
  */
 public class HazelcastConfiguration {
+
+    /**
+     * Prefix of a server configuration file path denoting a resource on the classpath,
+     * e.g. {@code classpath:default-config.xml}.
+     */
+    public static final String CLASSPATH_PREFIX = "classpath:";
+
     private static final long WAIT_TIME_DEFAULT = 120;
     private static final long LEASE_TIME_DEFAULT = 120;
+    private static final int LOCK_HANDOFF_LIMIT_DEFAULT = 16;
+    private static final int LOCK_CACHE_SIZE_DEFAULT = 10000;
+    private static final long LOCK_CACHE_IDLE_DEFAULT = 60;
+    private static final long BIASED_LOCK_GRACE_DEFAULT = 100;
+    private static final boolean DEADLOCK_DETECTION_DEFAULT = true;
+    private static final boolean CLIENT_SMART_ROUTING_DEFAULT = true;
+    private static final int CLIENT_IO_THREADS_DEFAULT = 0;
+    private static final long CLIENT_INVOCATION_TIMEOUT_SECS_DEFAULT = 120;
+    private static final long CLIENT_HEARTBEAT_INTERVAL_MILLIS_DEFAULT = 2000;
+    private static final long CLIENT_HEARTBEAT_TIMEOUT_MILLIS_DEFAULT = 20000;
+    private static final long CLIENT_CONNECTION_TIMEOUT_MILLIS_DEFAULT = 5000;
+    private static final int CLIENT_CONNECTION_ATTEMPT_LIMIT_DEFAULT = 10;
+    private static final long CLIENT_CONNECTION_ATTEMPT_PERIOD_MILLIS_DEFAULT = 1000;
+
+    private static final String ENV_HAZELCAST_PARTITIONS = "HAZELCAST_PARTITIONS";
+    private static final String ENV_HAZELCAST_OPERATION_THREADS = "HAZELCAST_OPERATION_THREADS";
+    private static final String ENV_HAZELCAST_GENERIC_THREADS = "HAZELCAST_GENERIC_THREADS";
+    private static final String ENV_HAZELCAST_IO_THREADS = "HAZELCAST_IO_THREADS";
+    private static final String ENV_HAZELCAST_LOCK_BACKUPS = "HAZELCAST_LOCK_BACKUPS";
+    private static final String ENV_HAZELCAST_LOCK_ASYNC_BACKUPS = "HAZELCAST_LOCK_ASYNC_BACKUPS";
+    private static final String ENV_HAZELCAST_LOCK_BACKUP_MODE = "HAZELCAST_LOCK_BACKUP_MODE";
+    private static final String ENV_HAZELCAST_CLIENT_SMART_ROUTING = "HAZELCAST_CLIENT_SMART_ROUTING";
+    private static final String ENV_HAZELCAST_CLIENT_IO_THREADS = "HAZELCAST_CLIENT_IO_THREADS";
+    private static final String ENV_HAZELCAST_CLIENT_INVOCATION_TIMEOUT = "HAZELCAST_CLIENT_INVOCATION_TIMEOUT";
+    private static final String ENV_HAZELCAST_CLIENT_HEARTBEAT_INTERVAL = "HAZELCAST_CLIENT_HEARTBEAT_INTERVAL";
+    private static final String ENV_HAZELCAST_CLIENT_HEARTBEAT_TIMEOUT = "HAZELCAST_CLIENT_HEARTBEAT_TIMEOUT";
+    private static final String ENV_HAZELCAST_CLIENT_CONNECTION_TIMEOUT = "HAZELCAST_CLIENT_CONNECTION_TIMEOUT";
+    private static final String ENV_HAZELCAST_CLIENT_CONNECTION_ATTEMPT_LIMIT = "HAZELCAST_CLIENT_CONNECTION_ATTEMPT_LIMIT";
+    private static final String ENV_HAZELCAST_CLIENT_CONNECTION_ATTEMPT_PERIOD = "HAZELCAST_CLIENT_CONNECTION_ATTEMPT_PERIOD";
 
     private final String hazelcastConfigFile;
     private final String hazelcastClientConfigFile;
@@ -54,6 +95,35 @@ public class HazelcastConfiguration {
     private final String hazelcastUser;
     private final Long waitTimeSecs;
     private final Long leaseTimeSecs;
+    private final boolean lockCoalescing;
+    private final Integer lockHandoffLimit;
+    private final boolean virtualThreadMode;
+    private final boolean leaseRenewal;
+    private final boolean biasedLocking;
+    private final Boolean deadlockDetection;
+    private final Long biasedLockGraceMillis;
+    private final Integer lockCacheSize;
+    private final Long lockCacheIdleSecs;
+    private final Integer lockMaxWaiters;
+    private final Integer lockWaiterBudget;
+    private final LockBackendType lockBackend;
+    private final Integer lockStripes;
+    private final Integer partitionCount;
+    private final Integer operationThreads;
+    private final Integer genericOperationThreads;
+    private final Integer serverIoThreads;
+    private final Integer lockBackupCount;
+    private final Integer lockAsyncBackupCount;
+    private final LockBackupMode lockBackupMode;
+    private final boolean liteMember;
+    private final Boolean clientSmartRouting;
+    private final Integer clientIoThreads;
+    private final Long clientInvocationTimeoutSecs;
+    private final Long clientHeartbeatIntervalMillis;
+    private final Long clientHeartbeatTimeoutMillis;
+    private final Long clientConnectionTimeoutMillis;
+    private final Integer clientConnectionAttemptLimit;
+    private final Long clientConnectionAttemptPeriodMillis;
 
     // File less configuration
     private List<String> addresses = new ArrayList<>();
@@ -70,11 +140,51 @@ public class HazelcastConfiguration {
         this.hazelcastUser = builder.hazelcastUser;
         this.waitTimeSecs = builder.waitTimeSecs;
         this.leaseTimeSecs = builder.leaseTimeSecs;
+        this.lockCoalescing = builder.lockCoalescing;
+        this.lockHandoffLimit = builder.lockHandoffLimit;
+        this.virtualThreadMode = builder.virtualThreadMode;
+        this.leaseRenewal = builder.leaseRenewal;
+        this.biasedLocking = builder.biasedLocking;
+        this.deadlockDetection = builder.deadlockDetection;
+        this.biasedLockGraceMillis = builder.biasedLockGraceMillis;
+        this.lockCacheSize = builder.lockCacheSize;
+        this.lockCacheIdleSecs = builder.lockCacheIdleSecs;
+        this.lockMaxWaiters = builder.lockMaxWaiters;
+        this.lockWaiterBudget = builder.lockWaiterBudget;
+        this.lockBackend = builder.lockBackend;
+        this.lockStripes = builder.lockStripes;
+        this.partitionCount = orEnv(builder.partitionCount, ENV_HAZELCAST_PARTITIONS, Integer::valueOf);
+        this.operationThreads = orEnv(builder.operationThreads, ENV_HAZELCAST_OPERATION_THREADS, Integer::valueOf);
+        this.genericOperationThreads = orEnv(builder.genericOperationThreads,
+                ENV_HAZELCAST_GENERIC_THREADS, Integer::valueOf);
+        this.serverIoThreads = orEnv(builder.serverIoThreads, ENV_HAZELCAST_IO_THREADS, Integer::valueOf);
+        this.lockBackupCount = orEnv(builder.lockBackupCount, ENV_HAZELCAST_LOCK_BACKUPS, Integer::valueOf);
+        this.lockAsyncBackupCount = orEnv(builder.lockAsyncBackupCount,
+                ENV_HAZELCAST_LOCK_ASYNC_BACKUPS, Integer::valueOf);
+        this.lockBackupMode = orEnv(builder.lockBackupMode, ENV_HAZELCAST_LOCK_BACKUP_MODE,
+                mode -> LockBackupMode.valueOf(mode.trim().toUpperCase()));
+        this.liteMember = builder.liteMember;
+        this.clientSmartRouting = orEnv(builder.clientSmartRouting,
+                ENV_HAZELCAST_CLIENT_SMART_ROUTING, Boolean::valueOf);
+        this.clientIoThreads = orEnv(builder.clientIoThreads, ENV_HAZELCAST_CLIENT_IO_THREADS, Integer::valueOf);
+        this.clientInvocationTimeoutSecs = orEnv(builder.clientInvocationTimeoutSecs,
+                ENV_HAZELCAST_CLIENT_INVOCATION_TIMEOUT, Long::valueOf);
+        this.clientHeartbeatIntervalMillis = orEnv(builder.clientHeartbeatIntervalMillis,
+                ENV_HAZELCAST_CLIENT_HEARTBEAT_INTERVAL, Long::valueOf);
+        this.clientHeartbeatTimeoutMillis = orEnv(builder.clientHeartbeatTimeoutMillis,
+                ENV_HAZELCAST_CLIENT_HEARTBEAT_TIMEOUT, Long::valueOf);
+        this.clientConnectionTimeoutMillis = orEnv(builder.clientConnectionTimeoutMillis,
+                ENV_HAZELCAST_CLIENT_CONNECTION_TIMEOUT, Long::valueOf);
+        this.clientConnectionAttemptLimit = orEnv(builder.clientConnectionAttemptLimit,
+                ENV_HAZELCAST_CLIENT_CONNECTION_ATTEMPT_LIMIT, Integer::valueOf);
+        this.clientConnectionAttemptPeriodMillis = orEnv(builder.clientConnectionAttemptPeriodMillis,
+                ENV_HAZELCAST_CLIENT_CONNECTION_ATTEMPT_PERIOD, Long::valueOf);
         this.addresses = builder.adresses;
     }
 
     /**
-     * Returns the path to the Hazelcast server configuration file.
+     * Returns the path to the Hazelcast server configuration file, or a classpath resource prefixed with
+     * {@value #CLASSPATH_PREFIX}.
      *
      * @return The path to the Hazelcast server configuration file.
      */
@@ -125,12 +235,448 @@ public class HazelcastConfiguration {
         }
     }
 
+    /**
+     * Returns whether threads of one JVM contending for the same lock are coalesced, i.e. queue locally
+     * and only the head of the local queue waits for the distributed lock.
+     *
+     * @return {@code true} if lock coalescing is enabled.
+     */
+    public boolean isLockCoalescing() {
+        return lockCoalescing;
+    }
+
+    /**
+     * Returns how many times in a row a coalesced lock may be handed over between local threads
+     * before it is released to the cluster, so that other clients get their turn.
+     *
+     * @return The maximal number of consecutive local handoffs.
+     */
+    public int getLockHandoffLimit() {
+        if (lockHandoffLimit == null) {
+            return LOCK_HANDOFF_LIMIT_DEFAULT;
+        } else {
+            return lockHandoffLimit;
+        }
+    }
+
+    /**
+     * Returns whether the lock service waits for locks without blocking in Hazelcast client calls, so that
+     * lock operations can run on virtual threads without pinning their carrier threads.
+     * <p>
+     * The mode only changes how the calling thread waits; the locks are the same as without it, so services with
+     * and without this mode exclude each other. Lock coalescing and biased locking do not apply in this mode.
+     * </p>
+     *
+     * @return {@code true} if the virtual thread mode is enabled.
+     */
+    public boolean isVirtualThreadMode() {
+        return virtualThreadMode;
+    }
+
+    /**
+     * Returns whether the leases of locks held by running lock operations are renewed automatically.
+     * <p>
+     * With the renewal enabled, the lease time should be short (seconds): a crashed holder blocks the others
+     * only for the lease time, while the lease of a lock held by a running operation is extended every third
+     * of the lease time by a single background thread, see {@link LeaseRenewer}. Lock coalescing does not apply
+     * with the renewal, because a coalesced lock is handed over between threads.
+     * </p>
+     *
+     * @return {@code true} if the lease renewal is enabled.
+     */
+    public boolean isLeaseRenewal() {
+        return leaseRenewal;
+    }
+
+    /**
+     * Returns whether the locks of {@link LockService#doWithLock} are kept on the client for a short grace period
+     * after use, so that the next acquisition of the same name by this JVM is local, see {@link BiasedLockRetainer}.
+     * <p>
+     * A retained lock is given up as soon as another owner asks for it. Biased locking takes precedence
+     * over lock coalescing; it does not apply in the {@link #isVirtualThreadMode() virtual thread mode}, whose
+     * waiting it would bypass.
+     * </p>
+     *
+     * @return {@code true} if biased locking is enabled.
+     */
+    public boolean isBiasedLocking() {
+        return biasedLocking;
+    }
+
+    /**
+     * Returns how long a biased lock is kept on the client after use.
+     *
+     * @return The grace period in milliseconds.
+     */
+    public long getBiasedLockGraceMillis() {
+        if (biasedLockGraceMillis == null) {
+            return BIASED_LOCK_GRACE_DEFAULT;
+        } else {
+            return biasedLockGraceMillis;
+        }
+    }
+
+    /**
+     * Returns whether the server members (and the {@link LockBackendType#IN_PROCESS} backend) detect deadlocks,
+     * failing the victim with {@link DeadlockException} instead of letting the circular wait end with a timeout.
+     * <p>
+     * The detection covers all locks of the {@link DistributedReadWriteLock} namespace, see {@link WaitForGraph}.
+     * Threads queued locally by lock coalescing are not visible to the server; a cycle through such a wait still ends
+     * with a timeout. The setting applies to the members created from this configuration, see
+     * {@link HazelcastServerNode}; it is enabled by default.
+     * </p>
+     *
+     * @return {@code true} if deadlocks are detected.
+     */
+    public boolean isDeadlockDetection() {
+        if (deadlockDetection == null) {
+            return DEADLOCK_DETECTION_DEFAULT;
+        } else {
+            return deadlockDetection;
+        }
+    }
+
+    /**
+     * Returns the maximal number of lock proxies cached by the lock service on the client.
+     *
+     * @return The maximal size of the lock proxy cache.
+     */
+    public int getLockCacheSize() {
+        if (lockCacheSize == null) {
+            return LOCK_CACHE_SIZE_DEFAULT;
+        } else {
+            return lockCacheSize;
+        }
+    }
+
+    /**
+     * Returns the time after which an unused lock proxy is evicted from the client cache.
+     *
+     * @return The idle time in seconds.
+     */
+    public long getLockCacheIdleSecs() {
+        if (lockCacheIdleSecs == null) {
+            return LOCK_CACHE_IDLE_DEFAULT;
+        } else {
+            return lockCacheIdleSecs;
+        }
+    }
+
+    /**
+     * Returns the maximal number of owners waiting for a single lock on a server member; further acquisitions
+     * fail immediately with {@link OverloadedException}. Admitted waiters get the lock in FIFO order,
+     * see {@link WaitQueues}. {@code 0} means no limit.
+     *
+     * @return The maximal number of waiters per lock.
+     */
+    public int getLockMaxWaiters() {
+        if (lockMaxWaiters == null) {
+            return 0;
+        } else {
+            return lockMaxWaiters;
+        }
+    }
+
+    /**
+     * Returns the maximal number of owners waiting for all locks of a server member, see {@link #getLockMaxWaiters()}.
+     * {@code 0} means no limit.
+     *
+     * @return The maximal number of waiters of the member.
+     */
+    public int getLockWaiterBudget() {
+        if (lockWaiterBudget == null) {
+            return 0;
+        } else {
+            return lockWaiterBudget;
+        }
+    }
+
+    /**
+     * Returns where {@link LockService} keeps its locks. {@link LockBackendType#IN_PROCESS} keeps them in the JVM
+     * for single-node deployments, no Hazelcast instance is needed then.
+     *
+     * @return The lock backend, {@link LockBackendType#HAZELCAST} by default.
+     */
+    public LockBackendType getLockBackend() {
+        if (lockBackend == null) {
+            return LockBackendType.HAZELCAST;
+        } else {
+            return lockBackend;
+        }
+    }
+
+    /**
+     * Returns the number of stripes the lock names are hashed onto, see {@link StripedLockBackend}. With striping
+     * the lock server holds at most this many locks no matter how many names are used, at the price of false
+     * contention between names sharing a stripe. All lock services sharing the locks must use the same number,
+     * the first service decides and the others fail to start.
+     *
+     * @return The number of stripes, {@code 0} (no striping) by default.
+     */
+    public int getLockStripes() {
+        if (lockStripes == null) {
+            return 0;
+        } else {
+            return lockStripes;
+        }
+    }
+
+    //===== Server performance profile, applied on top of the XML or programmatic server configuration.
+    // A value not set on the builder is taken from the environment variable; a value set in neither keeps
+    // the setting of the XML file or the Hazelcast default.
+
+    /**
+     * Returns the number of partitions of the cluster. Fewer partitions than the Hazelcast default of 271
+     * lower the per member overhead of a small lock-only cluster.
+     * <p>
+     * Environment variable {@code HAZELCAST_PARTITIONS}.
+     * </p>
+     *
+     * @return The partition count, or {@code null} if not set.
+     */
+    public Integer getPartitionCount() {
+        return partitionCount;
+    }
+
+    /**
+     * Returns the number of partition operation threads of a member, which execute the lock operations.
+     * <p>
+     * Environment variable {@code HAZELCAST_OPERATION_THREADS}.
+     * </p>
+     *
+     * @return The number of operation threads, or {@code null} if not set.
+     */
+    public Integer getOperationThreads() {
+        return operationThreads;
+    }
+
+    /**
+     * Returns the number of generic operation threads of a member, which execute the operations not bound to
+     * a partition.
+     * <p>
+     * Environment variable {@code HAZELCAST_GENERIC_THREADS}.
+     * </p>
+     *
+     * @return The number of generic operation threads, or {@code null} if not set.
+     */
+    public Integer getGenericOperationThreads() {
+        return genericOperationThreads;
+    }
+
+    /**
+     * Returns the number of input and the number of output IO threads of a member.
+     * <p>
+     * Environment variable {@code HAZELCAST_IO_THREADS}.
+     * </p>
+     *
+     * @return The number of IO threads in each direction, or {@code null} if not set.
+     */
+    public Integer getServerIoThreads() {
+        return serverIoThreads;
+    }
+
+    /**
+     * Returns the number of synchronous backups of the lock states of the read/write namespace
+     * ({@link DistributedReadWriteLock#MAP_NAME}); {@code 0} trades durability on member loss for latency.
+     * <p>
+     * Environment variable {@code HAZELCAST_LOCK_BACKUPS}.
+     * </p>
+     *
+     * @return The number of synchronous backups, or {@code null} if not set.
+     */
+    public Integer getLockBackupCount() {
+        return lockBackupCount;
+    }
+
+    /**
+     * Returns the number of asynchronous backups of the lock states of the read/write namespace.
+     * <p>
+     * Environment variable {@code HAZELCAST_LOCK_ASYNC_BACKUPS}.
+     * </p>
+     *
+     * @return The number of asynchronous backups, or {@code null} if not set.
+     */
+    public Integer getLockAsyncBackupCount() {
+        return lockAsyncBackupCount;
+    }
+
+    /**
+     * Returns how the lock states of the read/write namespace are backed up. With {@link LockBackupMode#SYNC}
+     * or {@link LockBackupMode#ASYNC}, {@link #getLockBackupCount()} or {@link #getLockAsyncBackupCount()}
+     * respectively gives the number of backups (1 if not set).
+     * <p>
+     * Environment variable {@code HAZELCAST_LOCK_BACKUP_MODE} ({@code sync}, {@code async} or {@code none}).
+     * </p>
+     *
+     * @return The backup mode, or {@code null} if not set; the backup counts are used as they are then.
+     */
+    public LockBackupMode getLockBackupMode() {
+        return lockBackupMode;
+    }
+
+    /**
+     * Returns whether a member started by {@link HazelcastServerNode} joins the cluster as a lite member, which owns
+     * no partitions and therefore holds no locks. An application embedding a lite member calls the members owning
+     * the locks directly, without a client in between, and leaving the cluster does not migrate any lock.
+     *
+     * @return {@code true} for a lite member.
+     */
+    public boolean isLiteMember() {
+        return liteMember;
+    }
+
+    //===== Client performance settings, applied to client nodes without a client config file.
+    // A value not set on the builder is taken from the environment variable, then from the default.
+
+    /**
+     * Returns whether the client sends each lock operation directly to the member owning the partition of the lock
+     * (one network hop) instead of through a single member.
+     * <p>
+     * Environment variable {@code HAZELCAST_CLIENT_SMART_ROUTING}.
+     * </p>
+     *
+     * @return {@code true} for smart routing.
+     */
+    public boolean isClientSmartRouting() {
+        if (clientSmartRouting == null) {
+            return CLIENT_SMART_ROUTING_DEFAULT;
+        } else {
+            return clientSmartRouting;
+        }
+    }
+
+    /**
+     * Returns the number of input and the number of output IO threads of the client, {@code 0} leaves the choice
+     * to Hazelcast. Lock messages are small, so a few threads suffice.
+     * <p>
+     * Environment variable {@code HAZELCAST_CLIENT_IO_THREADS}.
+     * </p>
+     *
+     * @return The number of IO threads in each direction.
+     */
+    public int getClientIoThreads() {
+        if (clientIoThreads == null) {
+            return CLIENT_IO_THREADS_DEFAULT;
+        } else {
+            return clientIoThreads;
+        }
+    }
+
+    /**
+     * Returns the time for which the client retries an operation which could not be sent, e.g. while it fails over
+     * to another member.
+     * <p>
+     * Environment variable {@code HAZELCAST_CLIENT_INVOCATION_TIMEOUT}.
+     * </p>
+     *
+     * @return The invocation timeout in seconds.
+     */
+    public long getClientInvocationTimeoutSecs() {
+        if (clientInvocationTimeoutSecs == null) {
+            return CLIENT_INVOCATION_TIMEOUT_SECS_DEFAULT;
+        } else {
+            return clientInvocationTimeoutSecs;
+        }
+    }
+
+    /**
+     * Returns the interval of the heartbeats the client sends on idle connections.
+     * <p>
+     * Environment variable {@code HAZELCAST_CLIENT_HEARTBEAT_INTERVAL}.
+     * </p>
+     *
+     * @return The heartbeat interval in milliseconds.
+     */
+    public long getClientHeartbeatIntervalMillis() {
+        if (clientHeartbeatIntervalMillis == null) {
+            return CLIENT_HEARTBEAT_INTERVAL_MILLIS_DEFAULT;
+        } else {
+            return clientHeartbeatIntervalMillis;
+        }
+    }
+
+    /**
+     * Returns the time without any message after which the client considers a connection dead and fails over.
+     * <p>
+     * Environment variable {@code HAZELCAST_CLIENT_HEARTBEAT_TIMEOUT}.
+     * </p>
+     *
+     * @return The heartbeat timeout in milliseconds.
+     */
+    public long getClientHeartbeatTimeoutMillis() {
+        if (clientHeartbeatTimeoutMillis == null) {
+            return CLIENT_HEARTBEAT_TIMEOUT_MILLIS_DEFAULT;
+        } else {
+            return clientHeartbeatTimeoutMillis;
+        }
+    }
+
+    /**
+     * Returns the time the client waits for a connection to a member to be established.
+     * <p>
+     * Environment variable {@code HAZELCAST_CLIENT_CONNECTION_TIMEOUT}.
+     * </p>
+     *
+     * @return The connection timeout in milliseconds.
+     */
+    public long getClientConnectionTimeoutMillis() {
+        if (clientConnectionTimeoutMillis == null) {
+            return CLIENT_CONNECTION_TIMEOUT_MILLIS_DEFAULT;
+        } else {
+            return clientConnectionTimeoutMillis;
+        }
+    }
+
+    /**
+     * Returns the number of attempts to connect to the cluster, after which the client gives up and shuts down;
+     * {@code 0} means trying forever.
+     * <p>
+     * Environment variable {@code HAZELCAST_CLIENT_CONNECTION_ATTEMPT_LIMIT}.
+     * </p>
+     *
+     * @return The number of connection attempts.
+     */
+    public int getClientConnectionAttemptLimit() {
+        if (clientConnectionAttemptLimit == null) {
+            return CLIENT_CONNECTION_ATTEMPT_LIMIT_DEFAULT;
+        } else {
+            return clientConnectionAttemptLimit;
+        }
+    }
+
+    /**
+     * Returns the pause between the attempts to connect to the cluster.
+     * <p>
+     * Environment variable {@code HAZELCAST_CLIENT_CONNECTION_ATTEMPT_PERIOD}.
+     * </p>
+     *
+     * @return The connection attempt period in milliseconds.
+     */
+    public long getClientConnectionAttemptPeriodMillis() {
+        if (clientConnectionAttemptPeriodMillis == null) {
+            return CLIENT_CONNECTION_ATTEMPT_PERIOD_MILLIS_DEFAULT;
+        } else {
+            return clientConnectionAttemptPeriodMillis;
+        }
+    }
+
+    private static <T> T orEnv(T value, String envVar, Function<String, T> parser) {
+        if (value != null) {
+            return value;
+        }
+        String env = System.getenv(envVar);
+        return env == null || env.isEmpty() ? null : parser.apply(env);
+    }
 
     //===== File less configuration
 
     /**
      * Returns the explicitly defined list of Hazelcast server addresses
      * that the client should connect to.
+     * <p>
+     * On a server node a non-empty list enables the TCP/IP discovery of the other members of the cluster
+     * (and disables multicast), overriding the join configuration of the XML file.
+     * </p>
      *
      * @return list of Hazelcast server addresses (e.g. "localhost:5701").
      */
@@ -152,11 +698,41 @@ public class HazelcastConfiguration {
         private String hazelcastUser;
         private Long waitTimeSecs;
         private Long leaseTimeSecs;
+        private boolean lockCoalescing;
+        private Integer lockHandoffLimit;
+        private boolean virtualThreadMode;
+        private boolean leaseRenewal;
+        private boolean biasedLocking;
+        private Boolean deadlockDetection;
+        private Long biasedLockGraceMillis;
+        private Integer lockCacheSize;
+        private Long lockCacheIdleSecs;
+        private Integer lockMaxWaiters;
+        private Integer lockWaiterBudget;
+        private LockBackendType lockBackend;
+        private Integer lockStripes;
+        private Integer partitionCount;
+        private Integer operationThreads;
+        private Integer genericOperationThreads;
+        private Integer serverIoThreads;
+        private Integer lockBackupCount;
+        private Integer lockAsyncBackupCount;
+        private LockBackupMode lockBackupMode;
+        private boolean liteMember;
+        private Boolean clientSmartRouting;
+        private Integer clientIoThreads;
+        private Long clientInvocationTimeoutSecs;
+        private Long clientHeartbeatIntervalMillis;
+        private Long clientHeartbeatTimeoutMillis;
+        private Long clientConnectionTimeoutMillis;
+        private Integer clientConnectionAttemptLimit;
+        private Long clientConnectionAttemptPeriodMillis;
 
         private List<String> adresses = new ArrayList<>();
 
         /**
-         * Sets the path to the Hazelcast server configuration file.
+         * Sets the path to the Hazelcast server configuration file, or a classpath resource prefixed with
+         * {@value #CLASSPATH_PREFIX}.
          *
          * @param hazelcastConfigFile The path to the Hazelcast server configuration file.
          * @return This Builder instance for method chaining.
@@ -209,6 +785,326 @@ public class HazelcastConfiguration {
             return this;
         }
 
+        /**
+         * Enables coalescing of the lock requests of local threads, see {@link HazelcastConfiguration#isLockCoalescing()}.
+         *
+         * @param lockCoalescing {@code true} to enable lock coalescing.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder lockCoalescing(boolean lockCoalescing) {
+            this.lockCoalescing = lockCoalescing;
+            return this;
+        }
+
+        /**
+         * Sets the maximal number of consecutive local handoffs of a coalesced lock.
+         *
+         * @param lockHandoffLimit The maximal number of consecutive local handoffs.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder lockHandoffLimit(Integer lockHandoffLimit) {
+            this.lockHandoffLimit = lockHandoffLimit;
+            return this;
+        }
+
+        /**
+         * Enables the virtual thread mode, see {@link HazelcastConfiguration#isVirtualThreadMode()}.
+         *
+         * @param virtualThreadMode {@code true} to enable the virtual thread mode.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder virtualThreadMode(boolean virtualThreadMode) {
+            this.virtualThreadMode = virtualThreadMode;
+            return this;
+        }
+
+        /**
+         * Enables the automatic lease renewal, see {@link HazelcastConfiguration#isLeaseRenewal()}.
+         *
+         * @param leaseRenewal {@code true} to renew the leases of locks held by running operations.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder leaseRenewal(boolean leaseRenewal) {
+            this.leaseRenewal = leaseRenewal;
+            return this;
+        }
+
+        /**
+         * Enables biased locking, see {@link HazelcastConfiguration#isBiasedLocking()}.
+         *
+         * @param biasedLocking {@code true} to keep released locks on the client for the grace period.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder biasedLocking(boolean biasedLocking) {
+            this.biasedLocking = biasedLocking;
+            return this;
+        }
+
+        /**
+         * Sets how long a biased lock is kept on the client after use.
+         *
+         * @param biasedLockGraceMillis The grace period in milliseconds.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder biasedLockGraceMillis(Long biasedLockGraceMillis) {
+            this.biasedLockGraceMillis = biasedLockGraceMillis;
+            return this;
+        }
+
+        /**
+         * Enables or disables the deadlock detection of the server, see
+         * {@link HazelcastConfiguration#isDeadlockDetection()}.
+         *
+         * @param deadlockDetection {@code false} to let deadlocks end with a timeout.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder deadlockDetection(Boolean deadlockDetection) {
+            this.deadlockDetection = deadlockDetection;
+            return this;
+        }
+
+        /**
+         * Sets the maximal number of lock proxies cached on the client.
+         *
+         * @param lockCacheSize The maximal size of the lock proxy cache.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder lockCacheSize(Integer lockCacheSize) {
+            this.lockCacheSize = lockCacheSize;
+            return this;
+        }
+
+        /**
+         * Sets the time after which an unused lock proxy is evicted from the client cache.
+         *
+         * @param lockCacheIdleSecs The idle time in seconds.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder lockCacheIdleSecs(Long lockCacheIdleSecs) {
+            this.lockCacheIdleSecs = lockCacheIdleSecs;
+            return this;
+        }
+
+        /**
+         * Sets the maximal number of owners waiting for a single lock on the server, {@code 0} for no limit.
+         *
+         * @param lockMaxWaiters The maximal number of waiters per lock.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder lockMaxWaiters(Integer lockMaxWaiters) {
+            this.lockMaxWaiters = lockMaxWaiters;
+            return this;
+        }
+
+        /**
+         * Sets the maximal number of owners waiting for all locks of the server, {@code 0} for no limit.
+         *
+         * @param lockWaiterBudget The maximal number of waiters of the server.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder lockWaiterBudget(Integer lockWaiterBudget) {
+            this.lockWaiterBudget = lockWaiterBudget;
+            return this;
+        }
+
+        /**
+         * Sets where the lock service keeps its locks.
+         *
+         * @param lockBackend The lock backend.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder lockBackend(LockBackendType lockBackend) {
+            this.lockBackend = lockBackend;
+            return this;
+        }
+
+        /**
+         * Sets the number of stripes the lock names are hashed onto, {@code 0} to lock every name on its own.
+         *
+         * @param lockStripes The number of stripes.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder lockStripes(Integer lockStripes) {
+            this.lockStripes = lockStripes;
+            return this;
+        }
+
+        /**
+         * Sets the number of partitions of the cluster.
+         *
+         * @param partitionCount The partition count.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder partitionCount(Integer partitionCount) {
+            this.partitionCount = partitionCount;
+            return this;
+        }
+
+        /**
+         * Sets the number of partition operation threads of a member.
+         *
+         * @param operationThreads The number of operation threads.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder operationThreads(Integer operationThreads) {
+            this.operationThreads = operationThreads;
+            return this;
+        }
+
+        /**
+         * Sets the number of generic operation threads of a member.
+         *
+         * @param genericOperationThreads The number of generic operation threads.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder genericOperationThreads(Integer genericOperationThreads) {
+            this.genericOperationThreads = genericOperationThreads;
+            return this;
+        }
+
+        /**
+         * Sets the number of input and output IO threads of a member.
+         *
+         * @param serverIoThreads The number of IO threads in each direction.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder serverIoThreads(Integer serverIoThreads) {
+            this.serverIoThreads = serverIoThreads;
+            return this;
+        }
+
+        /**
+         * Sets the number of synchronous backups of the read/write lock states.
+         *
+         * @param lockBackupCount The number of synchronous backups.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder lockBackupCount(Integer lockBackupCount) {
+            this.lockBackupCount = lockBackupCount;
+            return this;
+        }
+
+        /**
+         * Sets the number of asynchronous backups of the read/write lock states.
+         *
+         * @param lockAsyncBackupCount The number of asynchronous backups.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder lockAsyncBackupCount(Integer lockAsyncBackupCount) {
+            this.lockAsyncBackupCount = lockAsyncBackupCount;
+            return this;
+        }
+
+        /**
+         * Sets how the lock states of the read/write namespace are backed up.
+         *
+         * @param lockBackupMode The backup mode.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder lockBackupMode(LockBackupMode lockBackupMode) {
+            this.lockBackupMode = lockBackupMode;
+            return this;
+        }
+
+        /**
+         * Sets whether the member joins the cluster as a lite member, see {@link HazelcastConfiguration#isLiteMember()}.
+         *
+         * @param liteMember {@code true} for a lite member.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder liteMember(boolean liteMember) {
+            this.liteMember = liteMember;
+            return this;
+        }
+
+        /**
+         * Sets whether the client routes lock operations directly to the owning member.
+         *
+         * @param clientSmartRouting {@code true} for smart routing.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder clientSmartRouting(Boolean clientSmartRouting) {
+            this.clientSmartRouting = clientSmartRouting;
+            return this;
+        }
+
+        /**
+         * Sets the number of input and output IO threads of the client, {@code 0} for the Hazelcast default.
+         *
+         * @param clientIoThreads The number of IO threads in each direction.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder clientIoThreads(Integer clientIoThreads) {
+            this.clientIoThreads = clientIoThreads;
+            return this;
+        }
+
+        /**
+         * Sets the time for which the client retries an operation which could not be sent.
+         *
+         * @param clientInvocationTimeoutSecs The invocation timeout in seconds.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder clientInvocationTimeoutSecs(Long clientInvocationTimeoutSecs) {
+            this.clientInvocationTimeoutSecs = clientInvocationTimeoutSecs;
+            return this;
+        }
+
+        /**
+         * Sets the interval of the client heartbeats.
+         *
+         * @param clientHeartbeatIntervalMillis The heartbeat interval in milliseconds.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder clientHeartbeatIntervalMillis(Long clientHeartbeatIntervalMillis) {
+            this.clientHeartbeatIntervalMillis = clientHeartbeatIntervalMillis;
+            return this;
+        }
+
+        /**
+         * Sets the time without any message after which the client considers a connection dead.
+         *
+         * @param clientHeartbeatTimeoutMillis The heartbeat timeout in milliseconds.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder clientHeartbeatTimeoutMillis(Long clientHeartbeatTimeoutMillis) {
+            this.clientHeartbeatTimeoutMillis = clientHeartbeatTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Sets the time the client waits for a connection to be established.
+         *
+         * @param clientConnectionTimeoutMillis The connection timeout in milliseconds.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder clientConnectionTimeoutMillis(Long clientConnectionTimeoutMillis) {
+            this.clientConnectionTimeoutMillis = clientConnectionTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Sets the number of attempts to connect to the cluster, {@code 0} for trying forever.
+         *
+         * @param clientConnectionAttemptLimit The number of connection attempts.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder clientConnectionAttemptLimit(Integer clientConnectionAttemptLimit) {
+            this.clientConnectionAttemptLimit = clientConnectionAttemptLimit;
+            return this;
+        }
+
+        /**
+         * Sets the pause between the attempts to connect to the cluster.
+         *
+         * @param clientConnectionAttemptPeriodMillis The connection attempt period in milliseconds.
+         * @return This Builder instance for method chaining.
+         */
+        public Builder clientConnectionAttemptPeriodMillis(Long clientConnectionAttemptPeriodMillis) {
+            this.clientConnectionAttemptPeriodMillis = clientConnectionAttemptPeriodMillis;
+            return this;
+        }
+
         public Builder addHazelcastServer(String server) {
             this.adresses.add(server);
             return this;
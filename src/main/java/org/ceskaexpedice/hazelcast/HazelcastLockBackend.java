@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.core.ExecutionCallback;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.ICompletableFuture;
+import com.hazelcast.core.IMap;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock backend keeping the locks in the entries of the {@value DistributedReadWriteLock#MAP_NAME} map of a Hazelcast
+ * cluster.
+ * <p>
+ * Every attempt is a {@link LockStateProcessor} executed on the member owning the partition of the lock name.
+ * Waiting is done by repeated attempts with an exponential backoff (1 ms up to 100 ms). A set of names is requested
+ * by a single {@link IMap#executeOnKeys} call, which Hazelcast groups into one operation per partition owner; if any
+ * of the locks is not available, the ones acquired by the attempt are released again (also in one batch) and
+ * the attempt is repeated after a randomized backoff. The owner therefore never holds a part of the set while
+ * waiting for the rest; the price is that contending sets may livelock until their wait time elapses. An owner which
+ * gives up withdraws its waits right away, see {@link LockStateProcessor#cancel(String)}.
+ * An attempt which acquired a part of the set is not reported as a deadlock, because two overlapping attempts
+ * briefly holding each other's names form a cycle which dissolves as soon as they release their parts; a real
+ * deadlock of such an attempt ends with the wait time.
+ * </p>
+ *
+ * <p>
+ * Idle locks need no eviction by the client: the entries of free locks are removed by the processors and the entries
+ * of expired leases are dropped by the next operation on the lock.
+ * </p>
+ */
+class HazelcastLockBackend implements LockBackend {
+
+    /**
+     * The name of the map of the settings which all lock services of the cluster must share.
+     */
+    static final String SETTINGS_MAP_NAME = "hazelcast-locks-settings";
+
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final String STRIPES_SETTING = "lockStripes";
+
+    private final IMap<String, LockState> map;
+    private final IMap<String, Integer> settings;
+    private final String ownerPrefix;
+    private final long leaseMillis;
+
+    HazelcastLockBackend(HazelcastInstance hzInstance, long leaseTimeSecs) {
+        this.map = hzInstance.getMap(DistributedReadWriteLock.MAP_NAME);
+        this.settings = hzInstance.getMap(SETTINGS_MAP_NAME);
+        this.ownerPrefix = DistributedReadWriteLock.ownerPrefix(hzInstance);
+        this.leaseMillis = TimeUnit.SECONDS.toMillis(leaseTimeSecs);
+    }
+
+    @Override
+    public String getOwnerPrefix() {
+        return ownerPrefix;
+    }
+
+    @Override
+    public AcquireResult acquire(String owner, Map<String, LockMode> modes, long timeoutNanos)
+            throws InterruptedException {
+        if (modes.isEmpty()) {
+            return AcquireResult.GRANTED;
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        long backoff = MIN_BACKOFF_NANOS;
+        AcquireResult result = null;
+        try {
+            while (true) {
+                result = modes.size() == 1 ? attempt(owner, modes) : attemptAll(owner, modes);
+                if (result != AcquireResult.REJECTED) {
+                    return result;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return result;
+                }
+                long sleep = backoff;
+                if (modes.size() > 1) {
+                    // randomized, so that competing multi-locks do not keep colliding
+                    sleep = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.min(sleep, remaining));
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+            }
+        } finally {
+            if (result != AcquireResult.GRANTED) {
+                // also after an attempt which failed, the owner may still wait in the queues of its other names
+                cancel(owner, modes.keySet());
+            }
+        }
+    }
+
+    private AcquireResult attempt(String owner, Map<String, LockMode> modes) {
+        Map.Entry<String, LockMode> lock = modes.entrySet().iterator().next();
+        return (AcquireResult) map.executeOnKey(lock.getKey(),
+                LockStateProcessor.acquire(owner, lock.getValue(), leaseMillis));
+    }
+
+    private AcquireResult attemptAll(String owner, Map<String, LockMode> modes) {
+        Map<String, Object> results = map.executeOnKeys(modes.keySet(),
+                LockStateProcessor.acquire(owner, modes, leaseMillis));
+        Set<String> acquired = new HashSet<>(modes.size());
+        boolean deadlock = false;
+        boolean overloaded = false;
+        for (Map.Entry<String, Object> result : results.entrySet()) {
+            if (result.getValue() == AcquireResult.GRANTED) {
+                acquired.add(result.getKey());
+            } else if (result.getValue() == AcquireResult.DEADLOCK) {
+                deadlock = true;
+            } else if (result.getValue() == AcquireResult.OVERLOADED) {
+                overloaded = true;
+            }
+        }
+        if (acquired.size() == modes.size()) {
+            return AcquireResult.GRANTED;
+        }
+        if (!acquired.isEmpty()) {
+            map.executeOnKeys(acquired, LockStateProcessor.release(owner, modes));
+        }
+        // a cycle through names held by this very attempt may be an overlapping attempt holding the rest for a moment,
+        // both give their part up, so only a cycle found without holding any of the names is reported
+        if (deadlock && acquired.isEmpty()) {
+            return AcquireResult.DEADLOCK;
+        }
+        return overloaded ? AcquireResult.OVERLOADED : AcquireResult.REJECTED;
+    }
+
+    @Override
+    public Set<String> release(String owner, Map<String, LockMode> modes) {
+        Set<String> notHeld = new HashSet<>();
+        if (modes.size() == 1) {
+            Map.Entry<String, LockMode> lock = modes.entrySet().iterator().next();
+            if (!Boolean.TRUE.equals(map.executeOnKey(lock.getKey(),
+                    LockStateProcessor.release(owner, lock.getValue())))) {
+                notHeld.add(lock.getKey());
+            }
+        } else if (!modes.isEmpty()) {
+            Map<String, Object> results = map.executeOnKeys(modes.keySet(), LockStateProcessor.release(owner, modes));
+            for (Map.Entry<String, Object> result : results.entrySet()) {
+                if (!Boolean.TRUE.equals(result.getValue())) {
+                    notHeld.add(result.getKey());
+                }
+            }
+        }
+        return notHeld;
+    }
+
+    @Override
+    public void cancel(String owner, Set<String> lockNames) {
+        if (lockNames.size() == 1) {
+            map.submitToKey(lockNames.iterator().next(), LockStateProcessor.cancel(owner));
+        } else if (!lockNames.isEmpty()) {
+            map.executeOnKeys(lockNames, LockStateProcessor.cancel(owner));
+        }
+    }
+
+    @Override
+    public CompletableFuture<AcquireResult> attemptAsync(String owner, String lockName, LockMode mode) {
+        CompletableFuture<AcquireResult> result = new CompletableFuture<>();
+        @SuppressWarnings("unchecked")
+        ICompletableFuture<Object> future = map.submitToKey(lockName,
+                LockStateProcessor.acquire(owner, mode, leaseMillis));
+        future.andThen(new ExecutionCallback<Object>() {
+            @Override
+            public void onResponse(Object acquired) {
+                result.complete((AcquireResult) acquired);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> releaseAsync(String owner, String lockName, LockMode mode) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        @SuppressWarnings("unchecked")
+        ICompletableFuture<Object> future = map.submitToKey(lockName, LockStateProcessor.release(owner, mode));
+        future.andThen(new ExecutionCallback<Object>() {
+            @Override
+            public void onResponse(Object held) {
+                result.complete(Boolean.TRUE.equals(held));
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Set<String>> renew(Map<String, Set<String>> owners) {
+        Map<String, Set<String>> lost = new HashMap<>();
+        if (owners.isEmpty()) {
+            return lost;
+        }
+        Map<String, Object> results = map.executeOnKeys(new HashSet<>(owners.keySet()),
+                LockStateProcessor.renew(owners, leaseMillis));
+        for (Map.Entry<String, Object> result : results.entrySet()) {
+            if (result.getValue() != null) {
+                lost.put(result.getKey(), (Set<String>) result.getValue());
+            }
+        }
+        return lost;
+    }
+
+    @Override
+    public void registerStripes(int stripes) {
+        // kept by the cluster until its last member stops
+        Integer registered = settings.putIfAbsent(STRIPES_SETTING, stripes);
+        if (registered != null && registered != stripes) {
+            throw new IllegalStateException("The lock services of the cluster use " + registered
+                    + " lock stripes (0 for none), cannot use " + stripes);
+        }
+    }
+
+    @Override
+    public void evictIdle() {
+        // nothing is kept on the client
+    }
+}
@@ -16,17 +16,25 @@
  */
 package org.ceskaexpedice.hazelcast;
 
+import com.hazelcast.config.ClasspathXmlConfig;
 import com.hazelcast.config.Config;
 import com.hazelcast.config.GroupConfig;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.ServiceConfig;
 import com.hazelcast.config.XmlConfigBuilder;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.Member;
 import com.hazelcast.logging.ILogger;
 import com.hazelcast.logging.Logger;
 
+import javax.management.ObjectName;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 
 /**
  * Manages the Hazelcast server node for distributed locking.
@@ -39,6 +47,19 @@ import java.io.IOException;
  * </p>
  *
  * <p>
+ * Besides running the standalone lock server, the node lets an application JVM join the cluster as a member and use
+ * the locks without the client-to-member hop (embedded access):
+ * </p>
+ * <ol>
+ * <li>{@link #ensureHazelcastNode} joins the cluster, as a full member (holding a share of the locks, which migrate
+ * when it leaves) or as a lite member (see {@link HazelcastConfiguration#isLiteMember()});</li>
+ * <li>{@code new LockService(HazelcastServerNode.getHzInstance(), configuration)} gives the same lock API
+ * as with a client;</li>
+ * <li>on exit the lock service is shut down first, then the member leaves with {@link #shutdownGracefully(long)},
+ * which hands the locks of a full member over to the remaining members.</li>
+ * </ol>
+ *
+ * <p>
  * This class is thread-safe and ensures the Hazelcast instance is only created once.
  * </p>
  *
@@ -47,7 +68,19 @@ import java.io.IOException;
 public class HazelcastServerNode {
 
     private static final ILogger LOGGER = Logger.getLogger(HazelcastServerNode.class);
+    private static final long DRAIN_POLL_MILLIS = 100;
+    private static final String PARTITION_COUNT = "hazelcast.partition.count";
+    private static final String PARTITION_OPERATION_THREAD_COUNT = "hazelcast.operation.thread.count";
+    private static final String GENERIC_OPERATION_THREAD_COUNT = "hazelcast.operation.generic.thread.count";
+    private static final String IO_INPUT_THREAD_COUNT = "hazelcast.io.input.thread.count";
+    private static final String IO_OUTPUT_THREAD_COUNT = "hazelcast.io.output.thread.count";
+    private static final long LEASE_WHEEL_TICK_MILLIS = 250;
+    private static final int LEASE_WHEEL_SLOTS = 1024;
+
     private static HazelcastInstance hzInstance;
+    private static ServerLockStatistics statistics;
+    private static ObjectName statisticsName;
+    private static DrainState drainState;
 
     /**
      * Ensures that a Hazelcast node is started, creating an instance if it doesn't already exist.
@@ -62,15 +95,85 @@ public class HazelcastServerNode {
         if (hzInstance != null) {
             return;
         }
-        Config config = createHazelcastConfig(configuration);
+        Config config = createMemberConfig(configuration);
+        statistics = (ServerLockStatistics) config.getUserContext().get(ServerLockStatistics.USER_CONTEXT_KEY);
+        drainState = (DrainState) config.getUserContext().get(DrainState.USER_CONTEXT_KEY);
         hzInstance = Hazelcast.getOrCreateHazelcastInstance(config);
+        statistics.setLockMap(hzInstance.getMap(DistributedReadWriteLock.MAP_NAME));
+        statisticsName = JmxSupport.register(statistics, "LockServer", hzInstance.getName());
+    }
+
+    /**
+     * Returns the Hazelcast instance of this node, e.g. for a {@link LockService} of an application embedding
+     * the member. The instance is owned by the node, it must not be shut down directly.
+     *
+     * @return The Hazelcast instance, or {@code null} if the node is not running.
+     */
+    public static synchronized HazelcastInstance getHzInstance() {
+        return hzInstance;
+    }
+
+    /**
+     * Returns the lock statistics of this member.
+     *
+     * @return The statistics, or {@code null} if the node is not running.
+     */
+    public static synchronized ServerLockStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns the number of live locks owned by this member, see {@link ServerLockStatistics#getLiveLocks()}.
+     *
+     * @return The number of live locks, or {@code -1} if the node is not running.
+     */
+    public static synchronized int getLiveLockCount() {
+        return statistics == null ? -1 : statistics.getLiveLocks();
+    }
+
+    /**
+     * Creates the complete configuration of a lock server member: the loaded or created Hazelcast configuration
+     * with the cluster discovery and performance profile applied, the server side helpers of the lock processors
+     * in the user context and the {@link LeaseExpiryService} expiring the leases of the read/write locks.
+     *
+     * @param configuration The configuration of the member.
+     * @return The Hazelcast configuration of the member.
+     */
+    static Config createMemberConfig(HazelcastConfiguration configuration) {
+        Config config = createHazelcastConfig(configuration);
+        applyClusterMembers(config, configuration);
+        applyPerformanceProfile(config, configuration);
+        if (configuration.isLiteMember()) {
+            config.setLiteMember(true);
+        }
+        if (config.getProperty(LockNames.PARTITIONING_STRATEGY_PROPERTY) == null) {
+            // colocated lock names, the clients partition the keys the same way
+            config.setProperty(LockNames.PARTITIONING_STRATEGY_PROPERTY, LockNames.PARTITIONING_STRATEGY);
+        }
+        ServerLockStatistics memberStatistics = new ServerLockStatistics();
+        config.getUserContext().put(ServerLockStatistics.USER_CONTEXT_KEY, memberStatistics);
+        if (configuration.isDeadlockDetection()) {
+            config.getUserContext().put(WaitForGraph.USER_CONTEXT_KEY, new WaitForGraph());
+        }
+        config.getUserContext().put(DrainState.USER_CONTEXT_KEY, new DrainState());
+        LeaseTimingWheel leaseWheel = new LeaseTimingWheel(LEASE_WHEEL_TICK_MILLIS, LEASE_WHEEL_SLOTS);
+        config.getUserContext().put(LeaseTimingWheel.USER_CONTEXT_KEY, leaseWheel);
+        memberStatistics.setLeaseWheel(leaseWheel);
+        config.getServicesConfig().addServiceConfig(new ServiceConfig().setEnabled(true)
+                .setName(LeaseExpiryService.SERVICE_NAME).setImplementation(new LeaseExpiryService(leaseWheel)));
+        if (configuration.getLockMaxWaiters() > 0 || configuration.getLockWaiterBudget() > 0) {
+            WaitQueues waitQueues = new WaitQueues(configuration.getLockMaxWaiters(), configuration.getLockWaiterBudget());
+            config.getUserContext().put(WaitQueues.USER_CONTEXT_KEY, waitQueues);
+            memberStatistics.setWaitQueues(waitQueues);
+        }
+        return config;
     }
 
     /**
      * Creates the Hazelcast configuration based on the provided configuration details.
      * <p>
-     * This method either loads the configuration from an XML file if provided, or constructs the configuration
-     * programmatically if no file is specified.
+     * This method either loads the configuration from an XML file (or a classpath resource) if provided,
+     * or constructs the configuration programmatically if no file is specified or the file cannot be read.
      * </p>
      *
      * @param configuration The configuration containing details such as the config file path and user credentials.
@@ -78,14 +181,21 @@ public class HazelcastServerNode {
      */
     private static Config createHazelcastConfig(HazelcastConfiguration configuration) {
         Config config = null;
-        File configFile = configuration.getHazelcastConfigFile() == null ? null : new File(configuration.getHazelcastConfigFile());
+        String configPath = configuration.getHazelcastConfigFile();
+        if (configPath != null && configPath.startsWith(HazelcastConfiguration.CLASSPATH_PREFIX)) {
+            // read directly from the jar, without a temporary copy
+            return new ClasspathXmlConfig(configPath.substring(HazelcastConfiguration.CLASSPATH_PREFIX.length()));
+        }
+        File configFile = configPath == null ? null : new File(configPath);
         if (configFile != null) {
             try (FileInputStream configStream = new FileInputStream(configFile)) {
                 config = new XmlConfigBuilder(configStream).build();
             } catch (IOException ex) {
-                LOGGER.warning("Could not load Hazelcast config file " + configFile, ex);
+                LOGGER.warning("Could not load Hazelcast config file " + configFile
+                        + ", using the default configuration", ex);
             }
-        } else {
+        }
+        if (config == null) {
             config = new Config(configuration.getHazelcastInstance());
             GroupConfig groupConfig = config.getGroupConfig();
             groupConfig.setName(configuration.getHazelcastUser());
@@ -93,15 +203,170 @@ public class HazelcastServerNode {
         return config;
     }
 
+    /**
+     * Lets the member discover the other members of the cluster at the configured addresses.
+     */
+    private static void applyClusterMembers(Config config, HazelcastConfiguration configuration) {
+        if (configuration.getAddresses().isEmpty()) {
+            return;
+        }
+        JoinConfig join = config.getNetworkConfig().getJoin();
+        join.getMulticastConfig().setEnabled(false);
+        join.getTcpIpConfig().setEnabled(true).setMembers(new ArrayList<>(configuration.getAddresses()));
+        LOGGER.info("Joining cluster members " + configuration.getAddresses());
+    }
+
+    /**
+     * Applies the server performance profile of the configuration (see {@link HazelcastConfiguration#getPartitionCount()}
+     * and the following getters) on top of the loaded or created Hazelcast configuration.
+     */
+    private static void applyPerformanceProfile(Config config, HazelcastConfiguration configuration) {
+        setProperty(config, PARTITION_COUNT, configuration.getPartitionCount());
+        setProperty(config, PARTITION_OPERATION_THREAD_COUNT, configuration.getOperationThreads());
+        setProperty(config, GENERIC_OPERATION_THREAD_COUNT, configuration.getGenericOperationThreads());
+        setProperty(config, IO_INPUT_THREAD_COUNT, configuration.getServerIoThreads());
+        setProperty(config, IO_OUTPUT_THREAD_COUNT, configuration.getServerIoThreads());
+        Integer backups = configuration.getLockBackupCount();
+        Integer asyncBackups = configuration.getLockAsyncBackupCount();
+        LockBackupMode mode = configuration.getLockBackupMode();
+        if (mode == LockBackupMode.SYNC) {
+            backups = backups == null ? 1 : backups;
+            asyncBackups = 0;
+        } else if (mode == LockBackupMode.ASYNC) {
+            asyncBackups = asyncBackups == null ? 1 : asyncBackups;
+            backups = 0;
+        } else if (mode == LockBackupMode.NONE) {
+            backups = 0;
+            asyncBackups = 0;
+        }
+        if (backups != null || asyncBackups != null) {
+            MapConfig mapConfig = config.getMapConfig(DistributedReadWriteLock.MAP_NAME);
+            if (backups != null) {
+                mapConfig.setBackupCount(backups);
+            }
+            if (asyncBackups != null) {
+                mapConfig.setAsyncBackupCount(asyncBackups);
+            }
+        }
+    }
+
+    private static void setProperty(Config config, String name, Integer value) {
+        if (value != null) {
+            config.setProperty(name, value.toString());
+        }
+    }
+
+    /**
+     * Drains the running Hazelcast instance and shuts it down.
+     * <p>
+     * When other data members remain in the cluster, the member leaves right away: the shutdown migrates its
+     * partitions with the lock states to the surviving members, where the holders release their locks and the waiting
+     * clients acquire them, so a rolling restart does not wait for the holders of each member in turn. Only the last
+     * data member, whose lock states would be lost, stops admitting new holders of the read/write locks
+     * (see {@link DrainState}) and waits at most the given time until the held locks are released.
+     * </p>
+     *
+     * @param drainTimeoutMillis The maximal time to wait for the lock holders on the last data member.
+     */
+    public static void shutdownGracefully(long drainTimeoutMillis) {
+        HazelcastInstance instance;
+        DrainState state;
+        synchronized (HazelcastServerNode.class) {
+            instance = hzInstance;
+            state = drainState;
+        }
+        if (instance != null) {
+            drain(instance, state, System.currentTimeMillis() + drainTimeoutMillis);
+        }
+        shutdown();
+    }
+
+    /**
+     * Drains the member before its shutdown if it is the last data member of the cluster, see
+     * {@link #shutdownGracefully(long)}.
+     *
+     * @param instance The member.
+     * @param state    The drain state of the member.
+     * @param deadline The time until which the holders are waited for.
+     * @return The number of read/write locks still held on the member, {@code 0} if the member hands them over.
+     */
+    static int drain(HazelcastInstance instance, DrainState state, long deadline) {
+        if (instance.getConfig().isLiteMember()) {
+            // owns no partitions
+            return 0;
+        }
+        if (!isLastDataMember(instance)) {
+            LOGGER.info("Handing the locks of the member over to the remaining members");
+            return 0;
+        }
+        state.start();
+        IMap<String, LockState> map = instance.getMap(DistributedReadWriteLock.MAP_NAME);
+        int held = 0;
+        try {
+            while (true) {
+                held = countHeldLocks(map);
+                if (held == 0) {
+                    LOGGER.info("All locks of the member released");
+                    return 0;
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    LOGGER.warning("Shutting down with " + held + " locks held on the member");
+                    return held;
+                }
+                LOGGER.info("Draining " + held + " locks held on the member");
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOGGER.warning("Could not drain the member", e);
+        }
+        return held;
+    }
+
+    /**
+     * Returns whether no other member of the cluster owns partitions, i.e. whether the lock states of the member
+     * would be lost when it leaves.
+     */
+    static boolean isLastDataMember(HazelcastInstance instance) {
+        for (Member member : instance.getCluster().getMembers()) {
+            if (!member.localMember() && !member.isLiteMember()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int countHeldLocks(IMap<String, LockState> map) {
+        int held = 0;
+        long now = System.currentTimeMillis();
+        for (String key : map.localKeySet()) {
+            LockState state = map.get(key);
+            if (state != null) {
+                // expires the leases on the local copy only
+                state.expire(now);
+                if (!state.isFree()) {
+                    held++;
+                }
+            }
+        }
+        return held;
+    }
+
     /**
      * Shuts down the running Hazelcast instance, if one is currently active.
      * <p>
      * This method ensures that the Hazelcast instance is properly shut down and its resources are released.
      * </p>
      */
-    public static void shutdown() {
+    public static synchronized void shutdown() {
+        JmxSupport.unregister(statisticsName);
+        statisticsName = null;
+        statistics = null;
+        drainState = null;
         if (hzInstance != null) {
             hzInstance.shutdown();
+            hzInstance = null;
         }
     }
 }
@@ -16,13 +16,10 @@
  */
 package org.ceskaexpedice.hazelcast;
 
-import com.hazelcast.nio.IOUtil;
-
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
 import java.util.concurrent.CountDownLatch;
-import java.util.logging.Level;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
@@ -35,17 +32,37 @@ public class HazelcastServerNodeStarter {
     private static final String ENV_HAZELCAST_CONFIG_FILE = "HAZELCAST_CONFIG_FILE";
     private static final String ENV_HAZELCAST_INSTANCE = "HAZELCAST_INSTANCE";
     private static final String ENV_HAZELCAST_USER = "HAZELCAST_USER";
+    private static final String ENV_HAZELCAST_LOCK_MAX_WAITERS = "HAZELCAST_LOCK_MAX_WAITERS";
+    private static final String ENV_HAZELCAST_LOCK_WAITER_BUDGET = "HAZELCAST_LOCK_WAITER_BUDGET";
+    private static final String ENV_HAZELCAST_DEADLOCK_DETECTION = "HAZELCAST_DEADLOCK_DETECTION";
+    private static final String ENV_HAZELCAST_MEMBERS = "HAZELCAST_MEMBERS";
+    private static final String ENV_HAZELCAST_DRAIN_TIMEOUT = "HAZELCAST_DRAIN_TIMEOUT";
 
-    private static final String DEFAULT_HAZELCAST_CONFIG_FILE = initDefaultConfiguration();
+    private static final String DEFAULT_HAZELCAST_CONFIG_FILE =
+            HazelcastConfiguration.CLASSPATH_PREFIX + "default-config.xml";
     private static final String DEFAULT_HAZELCAST_INSTANCE = "akubrasync";
     private static final String DEFAULT_HAZELCAST_USER = "dev";
+    // fits into the default 10 s stop timeout of Docker
+    private static final String DEFAULT_HAZELCAST_DRAIN_TIMEOUT = "8";
 
     private static final Logger LOGGER = Logger.getLogger(HazelcastServerNodeStarter.class.getName());
     private static final CountDownLatch shutdownLatch = new CountDownLatch(1);
 
+    /**
+     * Option starting the server and shutting it down right away, e.g. to measure the startup time or to record
+     * the class data sharing archive.
+     */
+    private static final String EXIT_AFTER_START = "--exit-after-start";
+
     public static void main(String[] args) {
         startServer();
-        LOGGER.info("Hazelcast server node started successfully");
+        // the JVM start includes loading the classes, which the class data sharing archive of the image speeds up
+        LOGGER.info("Hazelcast server node started successfully in "
+                + ManagementFactory.getRuntimeMXBean().getUptime() + " ms");
+        if (Arrays.asList(args).contains(EXIT_AFTER_START)) {
+            stopServer();
+            return;
+        }
 
         // Register shutdown hook
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -67,30 +84,47 @@ public class HazelcastServerNodeStarter {
         String hazelcastConfigFileS = getEnvOrDefault(ENV_HAZELCAST_CONFIG_FILE, DEFAULT_HAZELCAST_CONFIG_FILE);
         String hazelcastInstance = getEnvOrDefault(ENV_HAZELCAST_INSTANCE, DEFAULT_HAZELCAST_INSTANCE);
         String hazelcastUser = getEnvOrDefault(ENV_HAZELCAST_USER, DEFAULT_HAZELCAST_USER);
+        String lockMaxWaiters = getEnvOrDefault(ENV_HAZELCAST_LOCK_MAX_WAITERS, null);
+        String lockWaiterBudget = getEnvOrDefault(ENV_HAZELCAST_LOCK_WAITER_BUDGET, null);
+        String deadlockDetection = getEnvOrDefault(ENV_HAZELCAST_DEADLOCK_DETECTION, null);
+        // comma separated host[:port] of the cluster members, e.g. "locks-1,locks-2,locks-3"
+        String members = getEnvOrDefault(ENV_HAZELCAST_MEMBERS, null);
 
+        // HazelcastConfiguration reads the performance profile (HAZELCAST_PARTITIONS, ...) itself
         HazelcastConfiguration hazelcastConfig = new HazelcastConfiguration.Builder()
                 .hazelcastConfigFile(hazelcastConfigFileS)
                 .hazelcastInstance(hazelcastInstance)
                 .hazelcastUser(hazelcastUser)
+                .lockMaxWaiters(lockMaxWaiters == null ? null : Integer.valueOf(lockMaxWaiters))
+                .lockWaiterBudget(lockWaiterBudget == null ? null : Integer.valueOf(lockWaiterBudget))
+                .deadlockDetection(deadlockDetection == null ? null : Boolean.valueOf(deadlockDetection))
+                .setHazelcastServers(parseMembers(members))
                 .build();
 
         HazelcastServerNode.ensureHazelcastNode(hazelcastConfig);
     }
 
-    static String initDefaultConfiguration()  {
-        try {
-            InputStream resourceAsStream = HazelcastServerNodeStarter.class.getClassLoader().getResourceAsStream("default-config.xml");
-            File defaultConfigFile = File.createTempFile("default", "config");
-            IOUtil.copy(resourceAsStream, defaultConfigFile);
-            return defaultConfigFile.getAbsolutePath();
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, e.getMessage(),e);
-            throw new RuntimeException(e);
-        }
+    /**
+     * Shuts the server down; the last member of the cluster is drained for at most {@code HAZELCAST_DRAIN_TIMEOUT}
+     * seconds first, see
+     * {@link HazelcastServerNode#shutdownGracefully(long)}.
+     */
+    public static void stopServer() {
+        long drainTimeoutSecs = Long.parseLong(getEnvOrDefault(ENV_HAZELCAST_DRAIN_TIMEOUT, DEFAULT_HAZELCAST_DRAIN_TIMEOUT));
+        HazelcastServerNode.shutdownGracefully(TimeUnit.SECONDS.toMillis(drainTimeoutSecs));
     }
 
-    public static void stopServer() {
-        HazelcastServerNode.shutdown();
+    /**
+     * Splits a comma separated member list, skipping blank entries such as those of a trailing comma.
+     */
+    static String[] parseMembers(String members) {
+        if (members == null) {
+            return new String[0];
+        }
+        return Arrays.stream(members.split(","))
+                .map(String::trim)
+                .filter(member -> !member.isEmpty())
+                .toArray(String[]::new);
     }
 
     private static String getEnvOrDefault(String envVar, String defaultValue) {
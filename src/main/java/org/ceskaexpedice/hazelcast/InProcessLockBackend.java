@@ -0,0 +1,454 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock backend keeping the locks in the JVM, for single-node deployments which do not need a Hazelcast cluster.
+ * <p>
+ * The lock states are the same {@link LockState}s the cluster keeps, so leases, reentrancy, upgrades and intention
+ * modes behave exactly as with {@link HazelcastLockBackend}; deadlocks are detected by a {@link WaitForGraph} (see
+ * {@link HazelcastConfiguration#isDeadlockDetection()}) and waiters are limited by {@link WaitQueues} as on a server
+ * member. The states are spread over {@value #STRIPES}
+ * stripes, each guarded by its own {@link ReentrantLock}, so uncontended locking costs a stripe lock and a hash map
+ * lookup. Waiters park on the condition of the stripe and are woken by releases; they also wake up at least every
+ * {@value #MAX_AWAIT_MILLIS} ms, so that expired leases are noticed and the waits in the graph stay fresh.
+ * A set of names locks the involved stripes in their index order for a single all-or-nothing attempt; if a lock is
+ * not available, the acquired ones are released again and the owner waits for a release on the stripe of the
+ * conflicting lock. Colocated names (see {@link LockNames}) share a stripe, as they share a partition in a cluster.
+ * </p>
+ *
+ * <p>
+ * The states of free locks are removed right away, states of expired leases are dropped by the next operation on
+ * the lock or by {@link #evictIdle()}. All backends created for the same instance name (see
+ * {@link HazelcastConfiguration#getHazelcastInstance()}) share the locks, like the clients of one cluster do;
+ * the owners of different backends are distinct.
+ * </p>
+ */
+class InProcessLockBackend implements LockBackend {
+
+    static final int STRIPES = 64;
+    static final long MAX_AWAIT_MILLIS = 100;
+
+    private static final long MAX_AWAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(MAX_AWAIT_MILLIS);
+    private static final ConcurrentMap<String, LockTable> TABLES = new ConcurrentHashMap<>();
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final String tableName;
+    private final LockTable table;
+    private final String ownerPrefix;
+    private final long leaseMillis;
+
+    InProcessLockBackend(HazelcastConfiguration configuration) {
+        this.tableName = configuration.getHazelcastInstance() == null ? "" : configuration.getHazelcastInstance();
+        this.table = TABLES.computeIfAbsent(tableName,
+                name -> new LockTable(configuration.getLockMaxWaiters(), configuration.getLockWaiterBudget(),
+                        configuration.isDeadlockDetection()));
+        this.ownerPrefix = "local-" + SEQUENCE.incrementAndGet() + ":";
+        this.leaseMillis = TimeUnit.SECONDS.toMillis(configuration.getLeaseTimeSecs());
+    }
+
+    @Override
+    public String getOwnerPrefix() {
+        return ownerPrefix;
+    }
+
+    @Override
+    public AcquireResult acquire(String owner, Map<String, LockMode> modes, long timeoutNanos)
+            throws InterruptedException {
+        if (modes.isEmpty()) {
+            return AcquireResult.GRANTED;
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        AcquireResult result = null;
+        try {
+            if (modes.size() == 1) {
+                Map.Entry<String, LockMode> lock = modes.entrySet().iterator().next();
+                result = acquire(owner, lock.getKey(), lock.getValue(), deadline);
+            } else {
+                result = acquireAll(owner, modes, deadline);
+            }
+            return result;
+        } finally {
+            if (result != AcquireResult.GRANTED) {
+                cancel(owner, modes.keySet());
+            }
+        }
+    }
+
+    private AcquireResult acquire(String owner, String lockName, LockMode mode, long deadline)
+            throws InterruptedException {
+        Stripe stripe = table.stripe(lockName);
+        stripe.lock.lockInterruptibly();
+        try {
+            while (true) {
+                AcquireResult result = attempt(stripe, owner, lockName, mode, System.currentTimeMillis());
+                if (result != AcquireResult.REJECTED) {
+                    return result;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return AcquireResult.REJECTED;
+                }
+                stripe.changed.awaitNanos(Math.min(remaining, MAX_AWAIT_NANOS));
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private AcquireResult acquireAll(String owner, Map<String, LockMode> modes, long deadline)
+            throws InterruptedException {
+        Set<Integer> indexes = new TreeSet<>();
+        for (String lockName : modes.keySet()) {
+            indexes.add(table.index(lockName));
+        }
+        List<Stripe> stripes = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            stripes.add(table.stripes[index]);
+        }
+        while (true) {
+            Stripe conflict = null;
+            long releases = 0;
+            lockAll(stripes);
+            try {
+                long now = System.currentTimeMillis();
+                List<String> acquired = new ArrayList<>(modes.size());
+                AcquireResult result = AcquireResult.GRANTED;
+                for (Map.Entry<String, LockMode> lock : modes.entrySet()) {
+                    Stripe stripe = table.stripe(lock.getKey());
+                    result = attempt(stripe, owner, lock.getKey(), lock.getValue(), now);
+                    if (result != AcquireResult.GRANTED) {
+                        conflict = stripe;
+                        break;
+                    }
+                    acquired.add(lock.getKey());
+                }
+                if (result == AcquireResult.GRANTED) {
+                    return result;
+                }
+                for (String lockName : acquired) {
+                    release(table.stripe(lockName), owner, lockName, modes.get(lockName), now);
+                }
+                if (result != AcquireResult.REJECTED) {
+                    return result;
+                }
+                releases = conflict.releases;
+            } finally {
+                for (int i = stripes.size() - 1; i >= 0; i--) {
+                    stripes.get(i).lock.unlock();
+                }
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return AcquireResult.REJECTED;
+            }
+            conflict.lock.lockInterruptibly();
+            try {
+                if (conflict.releases == releases) {
+                    conflict.changed.awaitNanos(Math.min(remaining, MAX_AWAIT_NANOS));
+                }
+            } finally {
+                conflict.lock.unlock();
+            }
+        }
+    }
+
+    private static void lockAll(List<Stripe> stripes) throws InterruptedException {
+        for (int i = 0; i < stripes.size(); i++) {
+            try {
+                stripes.get(i).lock.lockInterruptibly();
+            } catch (InterruptedException e) {
+                for (int j = i - 1; j >= 0; j--) {
+                    stripes.get(j).lock.unlock();
+                }
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Set<String> release(String owner, Map<String, LockMode> modes) {
+        Set<String> notHeld = new HashSet<>();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, LockMode> lock : modes.entrySet()) {
+            Stripe stripe = table.stripe(lock.getKey());
+            stripe.lock.lock();
+            try {
+                if (!release(stripe, owner, lock.getKey(), lock.getValue(), now)) {
+                    notHeld.add(lock.getKey());
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return notHeld;
+    }
+
+    @Override
+    public CompletableFuture<AcquireResult> attemptAsync(String owner, String lockName, LockMode mode) {
+        Stripe stripe = table.stripe(lockName);
+        stripe.lock.lock();
+        try {
+            return CompletableFuture.completedFuture(attempt(stripe, owner, lockName, mode, System.currentTimeMillis()));
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> releaseAsync(String owner, String lockName, LockMode mode) {
+        return CompletableFuture.completedFuture(release(owner, mode(lockName, mode)).isEmpty());
+    }
+
+    @Override
+    public void cancel(String owner, Set<String> lockNames) {
+        for (String lockName : lockNames) {
+            Stripe stripe = table.stripe(lockName);
+            stripe.lock.lock();
+            try {
+                if (table.waitForGraph != null) {
+                    table.waitForGraph.cancelled(owner, lockName);
+                }
+                if (table.waitQueues != null && table.waitQueues.remove(lockName, owner)) {
+                    // the waiters behind the owner may be admitted now
+                    stripe.changed.signalAll();
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Set<String>> renew(Map<String, Set<String>> owners) {
+        Map<String, Set<String>> lost = new HashMap<>();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Set<String>> lock : owners.entrySet()) {
+            String lockName = lock.getKey();
+            Stripe stripe = table.stripe(lockName);
+            stripe.lock.lock();
+            try {
+                LockState state = stripe.states.get(lockName);
+                if (state == null) {
+                    lost.put(lockName, new HashSet<>(lock.getValue()));
+                    continue;
+                }
+                if (state.expire(now)) {
+                    stripe.released();
+                }
+                for (String owner : lock.getValue()) {
+                    if (!state.renew(owner, now, leaseMillis)) {
+                        lost.computeIfAbsent(lockName, name -> new HashSet<>()).add(owner);
+                    }
+                }
+                store(stripe, lockName, state);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return lost;
+    }
+
+    @Override
+    public void registerStripes(int stripes) {
+        Integer registered = table.lockStripes.updateAndGet(current -> current == null ? stripes : current);
+        if (registered != stripes) {
+            throw new IllegalStateException("The lock services of instance " + tableName + " use " + registered
+                    + " lock stripes (0 for none), cannot use " + stripes);
+        }
+    }
+
+    @Override
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (Stripe stripe : table.stripes) {
+            stripe.lock.lock();
+            try {
+                boolean expired = false;
+                for (Iterator<LockState> states = stripe.states.values().iterator(); states.hasNext(); ) {
+                    LockState state = states.next();
+                    expired |= state.expire(now);
+                    if (state.isFree()) {
+                        states.remove();
+                    }
+                }
+                if (expired) {
+                    stripe.released();
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of locks currently held in the table of this backend.
+     */
+    int size() {
+        int size = 0;
+        for (Stripe stripe : table.stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.states.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Makes an acquire attempt, the caller holds the lock of the stripe.
+     */
+    private AcquireResult attempt(Stripe stripe, String owner, String lockName, LockMode mode, long now) {
+        LockState state = stripe.states.get(lockName);
+        if (state == null) {
+            state = new LockState();
+        }
+        boolean expired = state.expire(now);
+        AcquireResult result = arbitrate(state, owner, lockName, mode, now);
+        if (expired || result == AcquireResult.GRANTED) {
+            store(stripe, lockName, state);
+        }
+        if (expired) {
+            stripe.released();
+        }
+        return result;
+    }
+
+    /**
+     * Decides an acquire attempt the same way {@link LockStateProcessor} does on a server member.
+     */
+    private AcquireResult arbitrate(LockState state, String owner, String lockName, LockMode mode, long now) {
+        WaitQueues waitQueues = table.waitQueues;
+        boolean turn = waitQueues == null || state.isHeldBy(owner) || waitQueues.isTurn(lockName, owner, now);
+        if (turn && state.tryAcquire(owner, mode, now, leaseMillis)) {
+            if (waitQueues != null) {
+                waitQueues.remove(lockName, owner);
+            }
+            if (table.waitForGraph != null) {
+                table.waitForGraph.granted(owner);
+            }
+            return AcquireResult.GRANTED;
+        }
+        if (waitQueues != null && !waitQueues.await(lockName, owner, mode, now)) {
+            return AcquireResult.OVERLOADED;
+        }
+        if (table.waitForGraph != null
+                && table.waitForGraph.await(owner, lockName, state.getConflictingOwners(owner, mode), now)) {
+            if (waitQueues != null) {
+                waitQueues.remove(lockName, owner);
+            }
+            return AcquireResult.DEADLOCK;
+        }
+        return AcquireResult.REJECTED;
+    }
+
+    /**
+     * Releases one hold, the caller holds the lock of the stripe.
+     */
+    private boolean release(Stripe stripe, String owner, String lockName, LockMode mode, long now) {
+        LockState state = stripe.states.get(lockName);
+        if (state == null) {
+            return false;
+        }
+        boolean expired = state.expire(now);
+        boolean released = state.release(owner, mode);
+        if (released && table.waitForGraph != null && !state.isHeldBy(owner)) {
+            table.waitForGraph.released(owner, lockName);
+        }
+        store(stripe, lockName, state);
+        if (released || expired) {
+            stripe.released();
+        }
+        return released;
+    }
+
+    private static void store(Stripe stripe, String lockName, LockState state) {
+        if (state.isFree()) {
+            stripe.states.remove(lockName);
+        } else {
+            stripe.states.put(lockName, state);
+        }
+    }
+
+    private static Map<String, LockMode> mode(String lockName, LockMode mode) {
+        Map<String, LockMode> modes = new HashMap<>(2);
+        modes.put(lockName, mode);
+        return modes;
+    }
+
+    /**
+     * The locks of one instance name.
+     */
+    private static final class LockTable {
+
+        private final Stripe[] stripes = new Stripe[STRIPES];
+        private final WaitForGraph waitForGraph;
+        private final WaitQueues waitQueues;
+        // the number of stripes of the lock services, see registerStripes
+        private final AtomicReference<Integer> lockStripes = new AtomicReference<>();
+
+        private LockTable(int maxWaitersPerLock, int maxWaiters, boolean deadlockDetection) {
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe();
+            }
+            this.waitForGraph = deadlockDetection ? new WaitForGraph() : null;
+            this.waitQueues = maxWaitersPerLock > 0 || maxWaiters > 0 ? new WaitQueues(maxWaitersPerLock, maxWaiters) : null;
+        }
+
+        private int index(String lockName) {
+            int hash = LockNames.getPartitionKey(lockName).hashCode();
+            return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+        }
+
+        private Stripe stripe(String lockName) {
+            return stripes[index(lockName)];
+        }
+    }
+
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final Map<String, LockState> states = new HashMap<>();
+        // counts releases and expirations, lets a waiting multi-lock notice them between its attempts
+        private long releases;
+
+        private void released() {
+            releases++;
+            changed.signalAll();
+        }
+    }
+}
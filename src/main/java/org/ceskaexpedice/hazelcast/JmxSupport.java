@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registers the lock statistics in the platform MBean server.
+ */
+final class JmxSupport {
+
+    static final String DOMAIN = "org.ceskaexpedice.hazelcast";
+
+    private static final ILogger LOGGER = Logger.getLogger(JmxSupport.class);
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private JmxSupport() {
+    }
+
+    /**
+     * Registers the MBean under {@code org.ceskaexpedice.hazelcast:type=<type>,name=<name>-<sequence>}.
+     *
+     * @return The name of the registered MBean, or {@code null} if the registration failed.
+     */
+    static ObjectName register(Object mbean, String type, String name) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name="
+                    + ObjectName.quote(name + "-" + SEQUENCE.incrementAndGet()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+            return objectName;
+        } catch (JMException e) {
+            LOGGER.warning("Could not register MBean " + type + " " + name, e);
+            return null;
+        }
+    }
+
+    static void unregister(ObjectName objectName) {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.warning("Could not unregister MBean " + objectName, e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+import com.hazelcast.core.PartitionService;
+import com.hazelcast.spi.ManagedService;
+import com.hazelcast.spi.MigrationAwareService;
+import com.hazelcast.spi.NodeEngine;
+import com.hazelcast.spi.Operation;
+import com.hazelcast.spi.PartitionMigrationEvent;
+import com.hazelcast.spi.PartitionReplicationEvent;
+import com.hazelcast.spi.partition.MigrationEndpoint;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hazelcast service of a lock server member expiring the leases of the read/write locks held on the member.
+ * <p>
+ * The service is registered by {@link HazelcastServerNode#createMemberConfig(HazelcastConfiguration)}, so its
+ * lifecycle follows the member. A single daemon thread advances the {@link LeaseTimingWheel} every tick and
+ * submits the due locks, at most {@value #BATCH_SIZE} names per call, to {@link LockStateProcessor#expire()}
+ * processors, which drop the expired holders and remove the entries of the locks which became free. The
+ * processors run on the partition owners, so a lock which migrated in the meantime is still expired correctly.
+ * </p>
+ *
+ * <p>
+ * The wheel only knows the locks changed on this member. When the member becomes the owner of a partition, by
+ * a migration or by the promotion of its backup after the owner crashed, the service is notified as
+ * a {@link MigrationAwareService} and the next tick submits the expiration check of every lock of the partition;
+ * the check expires the due leases and schedules the remaining ones on this wheel. The lock states themselves
+ * are replicated by the map, so the service has no data to migrate.
+ * </p>
+ */
+class LeaseExpiryService implements ManagedService, MigrationAwareService {
+
+    /**
+     * The name of the service in the Hazelcast configuration.
+     */
+    static final String SERVICE_NAME = "ceskaexpedice:leaseExpiryService";
+
+    private static final ILogger LOGGER = Logger.getLogger(LeaseExpiryService.class);
+    private static final int BATCH_SIZE = 10_000;
+
+    private final LeaseTimingWheel wheel;
+    // partitions this member became the owner of, whose locks are not scheduled yet
+    private final Set<Integer> takenOver = ConcurrentHashMap.newKeySet();
+    private volatile HazelcastInstance hzInstance;
+    private ScheduledExecutorService ticker;
+
+    LeaseExpiryService(LeaseTimingWheel wheel) {
+        this.wheel = wheel;
+    }
+
+    @Override
+    public synchronized void init(NodeEngine nodeEngine, Properties properties) {
+        hzInstance = nodeEngine.getHazelcastInstance();
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hazelcast-locks-lease-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tickMillis = wheel.getTickMillis();
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void reset() {
+        // fired deadlines of locks which are no longer held only cause a check finding nothing to expire
+    }
+
+    @Override
+    public synchronized void shutdown(boolean terminate) {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    @Override
+    public Operation prepareReplicationOperation(PartitionReplicationEvent event) {
+        // the lock states are replicated by their map
+        return null;
+    }
+
+    @Override
+    public void beforeMigration(PartitionMigrationEvent event) {
+    }
+
+    @Override
+    public void commitMigration(PartitionMigrationEvent event) {
+        if (event.getMigrationEndpoint() == MigrationEndpoint.DESTINATION && event.getNewReplicaIndex() == 0) {
+            takenOver.add(event.getPartitionId());
+        }
+    }
+
+    @Override
+    public void rollbackMigration(PartitionMigrationEvent event) {
+    }
+
+    private void tick() {
+        try {
+            IMap<String, LockState> map = hzInstance.getMap(DistributedReadWriteLock.MAP_NAME);
+            List<String> due = wheel.advance(System.currentTimeMillis());
+            int checked = due.size();
+            expire(map, due);
+            if (!takenOver.isEmpty()) {
+                List<String> takenOverLocks = getTakenOverLocks(map);
+                checked += takenOverLocks.size();
+                expire(map, takenOverLocks);
+            }
+            if (checked > 0 && LOGGER.isFineEnabled()) {
+                LOGGER.fine("Checked " + checked + " lock leases, scheduled: " + wheel.size());
+            }
+        } catch (RuntimeException e) {
+            // keep the scheduled task alive, the locks are expired on their next use anyway
+            LOGGER.warning("Expiration of lock leases failed", e);
+        }
+    }
+
+    private static void expire(IMap<String, LockState> map, List<String> lockNames) {
+        for (int from = 0; from < lockNames.size(); from += BATCH_SIZE) {
+            Set<String> batch = new HashSet<>(lockNames.subList(from, Math.min(lockNames.size(), from + BATCH_SIZE)));
+            map.executeOnKeys(batch, LockStateProcessor.expire());
+        }
+    }
+
+    /**
+     * Returns the locks of the partitions taken over since the last tick; the scan costs a pass over the locks
+     * of this member, which is paid only after the partition table changed.
+     */
+    private List<String> getTakenOverLocks(IMap<String, LockState> map) {
+        Set<Integer> partitions = new HashSet<>();
+        for (Integer partitionId : takenOver) {
+            takenOver.remove(partitionId);
+            partitions.add(partitionId);
+        }
+        PartitionService partitionService = hzInstance.getPartitionService();
+        List<String> lockNames = new ArrayList<>();
+        for (String lockName : map.localKeySet()) {
+            if (partitions.contains(partitionService.getPartition(lockName).getPartitionId())) {
+                lockNames.add(lockName);
+            }
+        }
+        return lockNames;
+    }
+}
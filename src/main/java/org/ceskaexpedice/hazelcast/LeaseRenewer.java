@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extends the leases of the locks held by running lock operations.
+ * <p>
+ * All held locks of a lock service are renewed by one periodic task on the shared scheduler of the service,
+ * every third of the lease time. The holds of all owners are renewed by a single call of the {@link LockBackend},
+ * with the Hazelcast backend one {@link com.hazelcast.core.IMap#executeOnKeys} call, which Hazelcast groups into one
+ * operation per partition owner; the cost of a renewal cycle therefore does not grow with the number of holding
+ * threads.
+ * A hold registered more than once (reentrant holds) is renewed until it is unregistered the same number of times.
+ * </p>
+ *
+ * <p>
+ * If the lease of a hold could not be renewed (it expired before the renewal, e.g. after a long GC pause or
+ * a network partition), another owner may already hold the lock; the loss is logged, the running operation
+ * is not interrupted.
+ * </p>
+ */
+class LeaseRenewer implements Runnable {
+
+    private static final ILogger LOGGER = Logger.getLogger(LeaseRenewer.class);
+    private static final long MIN_PERIOD_MILLIS = 100;
+
+    private final LockBackend backend;
+    private final long leaseMillis;
+    private final Map<Hold, Integer> holds = new ConcurrentHashMap<>();
+
+    LeaseRenewer(LockBackend backend, long leaseTimeSecs) {
+        this.backend = backend;
+        this.leaseMillis = TimeUnit.SECONDS.toMillis(leaseTimeSecs);
+    }
+
+    /**
+     * Schedules the renewal on the given scheduler.
+     */
+    void start(ScheduledExecutorService scheduler) {
+        long period = Math.max(MIN_PERIOD_MILLIS, leaseMillis / 3);
+        scheduler.scheduleWithFixedDelay(this, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    void register(String owner, Collection<String> lockNames) {
+        for (String lockName : lockNames) {
+            holds.merge(new Hold(owner, lockName), 1, Integer::sum);
+        }
+    }
+
+    void unregister(String owner, Collection<String> lockNames) {
+        for (String lockName : lockNames) {
+            holds.computeIfPresent(new Hold(owner, lockName), (hold, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    /**
+     * Returns the number of holds currently renewed.
+     */
+    int size() {
+        return holds.size();
+    }
+
+    @Override
+    public void run() {
+        Map<String, Set<String>> owners = new HashMap<>();
+        for (Hold hold : holds.keySet()) {
+            owners.computeIfAbsent(hold.lockName, lockName -> new HashSet<>()).add(hold.owner);
+        }
+        if (owners.isEmpty()) {
+            return;
+        }
+        try {
+            for (Map.Entry<String, Set<String>> lost : backend.renew(owners).entrySet()) {
+                for (String owner : lost.getValue()) {
+                    if (holds.containsKey(new Hold(owner, lost.getKey()))) {
+                        LOGGER.warning("Lease of lock " + lost.getKey() + " held by " + owner
+                                + " expired before it could be renewed");
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // keep the scheduled task alive, the next run retries well within the lease
+            LOGGER.warning("Could not renew leases of " + owners.size() + " locks", e);
+        }
+    }
+
+    private static final class Hold {
+
+        private final String owner;
+        private final String lockName;
+
+        Hold(String owner, String lockName) {
+            this.owner = owner;
+            this.lockName = lockName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Hold)) {
+                return false;
+            }
+            Hold hold = (Hold) o;
+            return owner.equals(hold.owner) && lockName.equals(hold.lockName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(owner, lockName);
+        }
+    }
+}
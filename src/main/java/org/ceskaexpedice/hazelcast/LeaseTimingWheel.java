@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hashed timing wheel of the lease expirations of the read/write locks held on a member.
+ * <p>
+ * The {@link LockStateProcessor}s schedule the name of every lock they leave held at the time its first lease
+ * expires (see {@link LockState#nextExpiry()}); the {@link LeaseExpiryService} of the member advances the wheel
+ * every tick and expires the due locks, so holds of crashed owners are dropped even if nobody asks for the lock
+ * again. Scheduling and advancing cost a constant time per lock. A bucket keeps the names and the deadlines in
+ * parallel arrays, which grow by doubling, so scheduling a lock allocates no object, unlike a scheduled task
+ * or a map entry per lock.
+ * </p>
+ *
+ * <p>
+ * A bucket holds the deadlines of all rounds of the wheel, a lock due in a later round is kept until then.
+ * A lock may be scheduled again before its previous deadline fires (e.g. after a renewal), even into the same
+ * bucket; every fired deadline then only triggers a check which finds nothing expired. The wheel is shared through
+ * the user context of the member under {@link #USER_CONTEXT_KEY}.
+ * </p>
+ */
+final class LeaseTimingWheel {
+
+    /**
+     * The key of the wheel in the user context of the Hazelcast member.
+     */
+    static final String USER_CONTEXT_KEY = "org.ceskaexpedice.hazelcast.LeaseTimingWheel";
+
+    private final long tickMillis;
+    private final Bucket[] buckets;
+    private final int mask;
+    // only accessed by the thread advancing the wheel
+    private long nextTick = -1;
+
+    /**
+     * Creates the wheel.
+     *
+     * @param tickMillis The resolution of the wheel in milliseconds.
+     * @param slots      The number of buckets, rounded up to a power of two.
+     */
+    LeaseTimingWheel(long tickMillis, int slots) {
+        this.tickMillis = tickMillis;
+        int size = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.mask = size - 1;
+    }
+
+    long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * Schedules the expiration check of the lock.
+     *
+     * @param lockName The lock name.
+     * @param deadline The time of the first lease expiration in milliseconds.
+     */
+    void schedule(String lockName, long deadline) {
+        Bucket bucket = buckets[(int) (deadline / tickMillis) & mask];
+        synchronized (bucket) {
+            bucket.add(lockName, deadline);
+        }
+    }
+
+    /**
+     * Advances the wheel to the given time and removes the due locks. A deadline is found at the latest one tick
+     * after it passed; a deadline scheduled after its tick was already passed waits for the next round.
+     *
+     * @param now Current time in milliseconds.
+     * @return The names of the locks whose deadline passed.
+     */
+    List<String> advance(long now) {
+        // the last tick which fully elapsed, all deadlines of its current round are due
+        long tick = now / tickMillis - 1;
+        long from = nextTick < 0 || tick - nextTick >= buckets.length ? tick - mask : nextTick;
+        List<String> due = new ArrayList<>();
+        for (long t = from; t <= tick; t++) {
+            Bucket bucket = buckets[(int) t & mask];
+            synchronized (bucket) {
+                bucket.removeDue(now, due);
+            }
+        }
+        nextTick = tick + 1;
+        return due;
+    }
+
+    /**
+     * Returns the number of scheduled expiration checks.
+     *
+     * @return The number of scheduled locks.
+     */
+    int size() {
+        int size = 0;
+        for (Bucket bucket : buckets) {
+            synchronized (bucket) {
+                size += bucket.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The scheduled locks of a slot, guarded by the bucket.
+     */
+    private static final class Bucket {
+        private static final int INITIAL_CAPACITY = 4;
+
+        private String[] names = new String[INITIAL_CAPACITY];
+        private long[] deadlines = new long[INITIAL_CAPACITY];
+        private int size;
+
+        void add(String lockName, long deadline) {
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                deadlines = Arrays.copyOf(deadlines, size * 2);
+            }
+            names[size] = lockName;
+            deadlines[size] = deadline;
+            size++;
+        }
+
+        /**
+         * Moves the locks whose deadline passed to the list, keeping the order of the others.
+         */
+        void removeDue(long now, List<String> due) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (deadlines[i] <= now) {
+                    due.add(names[i]);
+                } else {
+                    names[kept] = names[i];
+                    deadlines[kept] = deadlines[i];
+                    kept++;
+                }
+            }
+            Arrays.fill(names, kept, size, null);
+            size = kept;
+            if (names.length > INITIAL_CAPACITY && size < names.length / 4) {
+                // give the memory of a burst back
+                int capacity = Math.max(INITIAL_CAPACITY, names.length / 2);
+                names = Arrays.copyOf(names, capacity);
+                deadlines = Arrays.copyOf(deadlines, capacity);
+            }
+        }
+    }
+}
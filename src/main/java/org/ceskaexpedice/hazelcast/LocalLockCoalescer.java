@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces the requests of local threads for the same distributed lock.
+ * <p>
+ * Threads of this JVM first queue on a fair local lock of the given name. Only the thread at the head
+ * of the local queue acquires the distributed write lock of the {@link DistributedReadWriteLock} namespace through
+ * the {@link LockBackend}; when it finishes and other local threads are
+ * queued, the distributed lock is kept and handed over to the next local thread, so the handoff costs
+ * a local park/unpark instead of a network round trip. The distributed lock is released to the cluster
+ * when nobody waits locally, after {@code handoffLimit} consecutive handoffs (so that other clients get
+ * their turn) or when half of the lease has been used up.
+ * </p>
+ *
+ * <p>
+ * Because the distributed lock is handed over between threads, it is held by an owner of the local lock rather than
+ * by the acquiring thread: a thread which handed the lock over must wait for it as anybody else. The thread using
+ * the local lock re-enters the name through the other lock paths of the service, see {@link ThreadHoldsLockBackend}.
+ * </p>
+ */
+class LocalLockCoalescer {
+
+    private static final ILogger LOGGER = Logger.getLogger(LocalLockCoalescer.class);
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final ConcurrentMap<String, LocalLock> localLocks = new ConcurrentHashMap<>();
+    private final LockBackend backend;
+    private final int handoffLimit;
+    private final long handoffWindowNanos;
+    private final LockStatistics statistics;
+
+    LocalLockCoalescer(LockBackend backend, int handoffLimit, long leaseTimeSecs, LockStatistics statistics) {
+        this.backend = backend;
+        this.handoffLimit = handoffLimit;
+        this.handoffWindowNanos = TimeUnit.SECONDS.toNanos(leaseTimeSecs) / 2;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Acquires the local lock and, unless it was handed over by another local thread, the distributed lock.
+     *
+     * @param lockName  The name of the lock.
+     * @param waitNanos The maximal time to wait for both locks.
+     * @return The acquired local lock, or {@code null} if the wait time elapsed.
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     * @throws DeadlockException    If waiting for the distributed lock would deadlock.
+     * @throws OverloadedException  If the server rejected waiting for the distributed lock.
+     */
+    LocalLock tryLock(String lockName, long waitNanos)
+            throws InterruptedException, DeadlockException, OverloadedException {
+        long deadline = System.nanoTime() + waitNanos;
+        LocalLock local = retain(lockName);
+        boolean acquired = false;
+        try {
+            if (!local.lock.tryLock(waitNanos, TimeUnit.NANOSECONDS)) {
+                releaseAbandoned(local);
+                return null;
+            }
+            if (local.distributedHeld) {
+                acquired = true;
+                return local;
+            }
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            AcquireResult result = backend.acquire(local.owner, local.modes, remaining);
+            if (result == AcquireResult.GRANTED) {
+                local.distributedHeld = true;
+                local.acquiredAt = System.nanoTime();
+                local.handoffs = 0;
+                acquired = true;
+                return local;
+            }
+            local.lock.unlock();
+            if (result == AcquireResult.DEADLOCK) {
+                throw new DeadlockException("Deadlock detected while waiting for lock " + lockName);
+            }
+            if (result == AcquireResult.OVERLOADED) {
+                throw new OverloadedException("Too many waiters for lock " + lockName);
+            }
+            return null;
+        } finally {
+            if (!acquired) {
+                release(local);
+            }
+        }
+    }
+
+    /**
+     * Releases the local lock, either handing the distributed lock over to the next local thread
+     * or releasing it to the cluster.
+     *
+     * @param local The local lock returned by {@link #tryLock}.
+     */
+    void unlock(LocalLock local) {
+        try {
+            if (local.lock.getHoldCount() == 1) {
+                if (local.lock.hasQueuedThreads() && local.handoffs < handoffLimit
+                        && System.nanoTime() - local.acquiredAt < handoffWindowNanos) {
+                    local.handoffs++;
+                    statistics.recordHandoff();
+                } else {
+                    releaseDistributed(local);
+                }
+            }
+        } finally {
+            local.lock.unlock();
+            release(local);
+        }
+    }
+
+    private void releaseDistributed(LocalLock local) {
+        local.distributedHeld = false;
+        if (!backend.release(local.owner, local.modes).isEmpty()) {
+            throw new IllegalMonitorStateException("Lock " + local.name + " is not held by " + local.owner);
+        }
+    }
+
+    /**
+     * Called by a thread which timed out in the local queue. The previous holder might have kept the distributed
+     * lock for this thread, so if nobody else took over, the distributed lock is released here.
+     */
+    private void releaseAbandoned(LocalLock local) {
+        if (!local.lock.tryLock()) {
+            return;
+        }
+        try {
+            if (local.lock.getHoldCount() == 1 && local.distributedHeld && !local.lock.hasQueuedThreads()) {
+                releaseDistributed(local);
+            }
+        } catch (IllegalMonitorStateException e) {
+            LOGGER.warning("Lock " + local.name + " was not held on release, lease probably expired");
+        } finally {
+            local.lock.unlock();
+        }
+    }
+
+    private LocalLock retain(String lockName) {
+        return localLocks.compute(lockName, (name, local) -> {
+            if (local == null) {
+                local = new LocalLock(name, backend.getOwnerPrefix() + "c" + SEQUENCE.incrementAndGet());
+            }
+            local.users++;
+            return local;
+        });
+    }
+
+    private void release(LocalLock local) {
+        localLocks.computeIfPresent(local.name, (name, current) -> --current.users == 0 ? null : current);
+    }
+
+    /**
+     * Local lock of a single name. The user count is guarded by the map, the remaining state by {@link #lock}.
+     */
+    static final class LocalLock {
+        private final String name;
+        private final Map<String, LockMode> modes;
+        private final String owner;
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private int users;
+        private boolean distributedHeld;
+        private long acquiredAt;
+        private int handoffs;
+
+        private LocalLock(String name, String owner) {
+            this.name = name;
+            this.owner = owner;
+            this.modes = Collections.singletonMap(name, LockMode.EXCLUSIVE);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Storage of the locks of the read/write namespace behind {@link DistributedReadWriteLock},
+ * {@link DistributedMultiLock} and the asynchronous locks of {@link LockService}.
+ * <p>
+ * A lock is identified by its name and held by owners in {@link LockMode}s with a lease; every backend implements
+ * the semantics of {@link LockState} (reentrancy, upgrades, intention modes, lease expiration), so the lock API
+ * behaves the same regardless of the backend. {@link HazelcastLockBackend} keeps the locks in the cluster,
+ * {@link InProcessLockBackend} in the JVM, see {@link HazelcastConfiguration#getLockBackend()}.
+ * </p>
+ */
+interface LockBackend {
+
+    /**
+     * Returns the prefix of the owner identifiers of this backend; the owners are completed by a thread id
+     * (see {@link DistributedReadWriteLock#threadOwner(String)}) or a handle number.
+     */
+    String getOwnerPrefix();
+
+    /**
+     * Acquires all the given locks for the owner, or none of them, waiting at most the given time.
+     *
+     * @param owner        The owner.
+     * @param modes        The requested mode of every lock name.
+     * @param timeoutNanos The maximal time to wait.
+     * @return {@link AcquireResult#GRANTED} if all locks are held, otherwise none of them is held.
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    AcquireResult acquire(String owner, Map<String, LockMode> modes, long timeoutNanos) throws InterruptedException;
+
+    /**
+     * Releases one hold of each of the given locks.
+     *
+     * @param owner The owner.
+     * @param modes The released mode of every lock name.
+     * @return The names of the locks which were not held by the owner in the mode.
+     */
+    Set<String> release(String owner, Map<String, LockMode> modes);
+
+    /**
+     * Withdraws the waits of an owner which gave up acquiring the given locks, so that the owners waiting behind it
+     * (see {@link WaitQueues}) need not wait until its wait goes stale, nor fail on a cycle through its abandoned
+     * wait (see {@link WaitForGraph}). The blocking {@link #acquire} withdraws by itself; a single lock is withdrawn
+     * without blocking the calling thread.
+     *
+     * @param owner     The owner.
+     * @param lockNames The names of the locks the owner waited for.
+     */
+    void cancel(String owner, Set<String> lockNames);
+
+    /**
+     * Makes a single attempt to acquire the lock without waiting and without blocking the calling thread.
+     *
+     * @return The future completed with the result of the attempt.
+     */
+    CompletableFuture<AcquireResult> attemptAsync(String owner, String lockName, LockMode mode);
+
+    /**
+     * Releases one hold of the lock without blocking the calling thread.
+     *
+     * @return The future completed with {@code true} if the lock was held by the owner in the mode.
+     */
+    CompletableFuture<Boolean> releaseAsync(String owner, String lockName, LockMode mode);
+
+    /**
+     * Extends the leases of all holds of the given locks by the given owners, all at once.
+     *
+     * @param owners The owners of every lock name whose holds are renewed.
+     * @return The owners of every lock name which no longer held it; the names renewed for all their owners
+     * are missing.
+     */
+    Map<String, Set<String>> renew(Map<String, Set<String>> owners);
+
+    /**
+     * Records the number of lock stripes of a lock service (see {@link StripedLockBackend}) for all services sharing
+     * the locks of this backend, the first registration decides. Services with different numbers of stripes would
+     * not exclude each other, because they lock different names for the same lock name.
+     *
+     * @param stripes The number of stripes of the service, {@code 0} without striping.
+     * @throws IllegalStateException If the services sharing the locks use a different number of stripes.
+     */
+    void registerStripes(int stripes);
+
+    /**
+     * Drops the locks whose leases expired and which nobody touched since; called periodically by
+     * {@link LockService}.
+     */
+    void evictIdle();
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+/**
+ * Where {@link LockService} keeps its locks, see {@link HazelcastConfiguration#getLockBackend()}.
+ */
+public enum LockBackendType {
+
+    /**
+     * The locks live in the Hazelcast cluster and exclude all clients of the cluster.
+     */
+    HAZELCAST,
+
+    /**
+     * The locks live in the JVM and exclude only the lock services of the same JVM (and of the same instance name).
+     * Meant for single-node deployments, which get local locking latency with the semantics of the
+     * read/write namespace; see {@link InProcessLockBackend}.
+     */
+    IN_PROCESS
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+/**
+ * How the lock states of the read/write namespace are backed up in a cluster of several members.
+ * <p>
+ * Backups let the locks survive the loss of a member at the cost of latency: a synchronous backup adds a round trip
+ * to another member to every lock operation, an asynchronous one does not, but a lock granted just before the member
+ * failed may be lost.
+ * </p>
+ */
+public enum LockBackupMode {
+
+    /**
+     * Every change is acknowledged by the backup member before the lock operation completes.
+     */
+    SYNC,
+
+    /**
+     * Changes are copied to the backup member in the background.
+     */
+    ASYNC,
+
+    /**
+     * No backups; the locks of a failed member are lost (the lowest latency).
+     */
+    NONE
+}
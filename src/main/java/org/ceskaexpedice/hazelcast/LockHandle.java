@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.Set;
+
+/**
+ * Handle of acquired locks. The locks are held until the handle is released.
+ * <p>
+ * The handle is {@link AutoCloseable}, so it can be used in a try-with-resources statement.
+ * </p>
+ */
+public interface LockHandle extends AutoCloseable {
+
+    /**
+     * Returns the names of the locks held by this handle.
+     *
+     * @return The lock names.
+     */
+    Set<String> getLockNames();
+
+    /**
+     * Releases all locks held by this handle.
+     *
+     * @throws IllegalMonitorStateException If any of the locks was no longer held, e.g. because its lease expired.
+     */
+    void release();
+
+    /**
+     * Same as {@link #release()}.
+     */
+    @Override
+    default void close() {
+        release();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+/**
+ * Modes in which a {@link DistributedReadWriteLock} can be held.
+ * <p>
+ * A mode can be granted to an owner only if it is compatible with all modes held by the other owners.
+ * Modes held by the same owner never conflict, which makes the locks reentrant and allows an owner
+ * to upgrade from {@link #SHARED} to {@link #EXCLUSIVE} when it is the only holder.
+ * </p>
+ *
+ * <p>
+ * The intention modes are held on the ancestors of a name locked in a hierarchy (e.g. the monograph of a page),
+ * see {@link LockService#lockHierarchy}. The compatibility follows the usual matrix:
+ * </p>
+ * <pre>
+ *        IS  IX  S   X
+ *   IS   +   +   +   -
+ *   IX   +   +   -   -
+ *   S    +   -   +   -
+ *   X    -   -   -   -
+ * </pre>
+ */
+public enum LockMode {
+
+    /**
+     * Read lock, may be held by any number of owners at the same time.
+     */
+    SHARED,
+
+    /**
+     * Write lock, excludes all other owners.
+     */
+    EXCLUSIVE,
+
+    /**
+     * Intention shared (IS), held on an ancestor while a descendant is locked {@link #SHARED}.
+     */
+    INTENTION_SHARED,
+
+    /**
+     * Intention exclusive (IX), held on an ancestor while a descendant is locked {@link #EXCLUSIVE}.
+     */
+    INTENTION_EXCLUSIVE;
+
+    /**
+     * Tests whether this mode may be granted while another owner holds the given mode.
+     *
+     * @param held The mode held by another owner.
+     * @return {@code true} if both modes may be held at the same time.
+     */
+    public boolean isCompatibleWith(LockMode held) {
+        switch (this) {
+            case INTENTION_SHARED:
+                return held != EXCLUSIVE;
+            case INTENTION_EXCLUSIVE:
+                return held == INTENTION_SHARED || held == INTENTION_EXCLUSIVE;
+            case SHARED:
+                return held == SHARED || held == INTENTION_SHARED;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the intention mode to be held on the ancestors of a name locked in this mode.
+     *
+     * @return {@link #INTENTION_SHARED} for shared modes, {@link #INTENTION_EXCLUSIVE} otherwise.
+     */
+    public LockMode intention() {
+        return this == SHARED || this == INTENTION_SHARED ? INTENTION_SHARED : INTENTION_EXCLUSIVE;
+    }
+}
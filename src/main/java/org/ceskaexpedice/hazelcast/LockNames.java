@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+/**
+ * Naming of locks which are colocated on one partition.
+ * <p>
+ * A lock name of the form {@code name@partitionKey} is placed on the partition of its partition key instead of
+ * the partition of the whole name, in both namespaces: Hazelcast places distributed objects such as {@code ILock}
+ * this way and the servers and clients of this library use the same string partitioning strategy for the keys of
+ * the read/write namespace. Locks sharing a partition key live on one member, so a multi-lock of the names
+ * (e.g. {@code lockHierarchy} of a monograph and its pages colocated by the monograph PID) costs a single operation
+ * of a single member, and deadlocks among them are detected by that member (see {@link WaitForGraph}).
+ * </p>
+ *
+ * <p>
+ * The partition key only decides the placement; the lock is still identified by its whole name, so
+ * {@code page} and {@code page@monograph} are different locks. Names without the separator keep their placement.
+ * </p>
+ */
+public final class LockNames {
+
+    /**
+     * Separates the partition key from the name.
+     */
+    public static final char PARTITION_KEY_SEPARATOR = '@';
+
+    static final String PARTITIONING_STRATEGY_PROPERTY = "hazelcast.partitioning.strategy.class";
+    static final String PARTITIONING_STRATEGY = "com.hazelcast.partition.strategy.StringPartitioningStrategy";
+
+    private LockNames() {
+    }
+
+    /**
+     * Returns the name of the lock placed on the partition of the given key.
+     *
+     * @param name         The name, must not contain the {@link #PARTITION_KEY_SEPARATOR}.
+     * @param partitionKey The partition key, e.g. the PID of the root of a hierarchy.
+     * @return The colocated lock name.
+     * @throws IllegalArgumentException If the name contains the separator.
+     */
+    public static String colocated(String name, String partitionKey) {
+        if (name.indexOf(PARTITION_KEY_SEPARATOR) >= 0) {
+            throw new IllegalArgumentException("Lock name " + name + " already contains a partition key");
+        }
+        return name + PARTITION_KEY_SEPARATOR + partitionKey;
+    }
+
+    /**
+     * Returns the key deciding the partition of the lock, the part following the first separator
+     * or the whole name.
+     *
+     * @param lockName The name of the lock.
+     * @return The partition key.
+     */
+    public static String getPartitionKey(String lockName) {
+        int separator = lockName.indexOf(PARTITION_KEY_SEPARATOR);
+        return separator < 0 ? lockName : lockName.substring(separator + 1);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of lock proxies keyed by lock name.
+ * <p>
+ * Lookups are lock-free; every hit only refreshes the access time of the entry. Once the cache grows over
+ * its maximal size, one caller evicts the entries idle for longer than the idle timeout and, if that is
+ * not enough, the least recently used entries until the cache is back at three quarters of its size.
+ * Idle entries are also evicted periodically by {@link #evictIdle()}.
+ * </p>
+ *
+ * <p>
+ * Eviction only drops the local reference. The proxies of {@link DistributedReadWriteLock} hold no distributed
+ * object, the state of a lock is an entry of a map which is removed on the server as soon as the lock is free.
+ * </p>
+ *
+ * @param <V> The type of the cached proxies.
+ */
+class LockProxyCache<V> {
+
+    private final ConcurrentMap<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final int maxSize;
+    private final long idleNanos;
+
+    LockProxyCache(int maxSize, long idleTimeSecs) {
+        this.maxSize = maxSize;
+        this.idleNanos = TimeUnit.SECONDS.toNanos(idleTimeSecs);
+    }
+
+    V get(String name, Function<String, V> factory) {
+        long now = System.nanoTime();
+        Entry<V> entry = entries.get(name);
+        if (entry == null) {
+            entry = entries.computeIfAbsent(name, key -> new Entry<>(factory.apply(key)));
+            if (entries.size() > maxSize) {
+                evict(now);
+            }
+        }
+        entry.lastAccess = now;
+        return entry.value;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Evicts the entries which were not accessed for longer than the idle timeout.
+     */
+    void evictIdle() {
+        evictionLock.lock();
+        try {
+            long now = System.nanoTime();
+            entries.values().removeIf(entry -> now - entry.lastAccess > idleNanos);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void evict(long now) {
+        if (!evictionLock.tryLock()) {
+            // somebody else is already evicting
+            return;
+        }
+        try {
+            entries.values().removeIf(entry -> now - entry.lastAccess > idleNanos);
+            int target = maxSize - maxSize / 4;
+            if (entries.size() <= target) {
+                return;
+            }
+            // access times keep changing, so sort a snapshot of them
+            List<Candidate<V>> candidates = new ArrayList<>(entries.size());
+            for (Map.Entry<String, Entry<V>> entry : entries.entrySet()) {
+                candidates.add(new Candidate<>(entry.getKey(), entry.getValue()));
+            }
+            candidates.sort((a, b) -> Long.compare(a.lastAccess, b.lastAccess));
+            for (int i = 0; i < candidates.size() && entries.size() > target; i++) {
+                Candidate<V> candidate = candidates.get(i);
+                entries.remove(candidate.name, candidate.entry);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Candidate<V> {
+        private final String name;
+        private final Entry<V> entry;
+        private final long lastAccess;
+
+        private Candidate(String name, Entry<V> entry) {
+            this.name = name;
+            this.entry = entry;
+            this.lastAccess = entry.lastAccess;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private volatile long lastAccess;
+
+        private Entry(V value) {
+            this.value = value;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+}
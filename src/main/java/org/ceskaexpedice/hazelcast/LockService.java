@@ -0,0 +1,611 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.logging.ILogger;
+import com.hazelcast.logging.Logger;
+
+import javax.management.ObjectName;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Executes {@link LockOperation}s guarded by distributed Hazelcast locks.
+ * <p>
+ * The service acquires the lock with the wait and lease times taken from {@link HazelcastConfiguration},
+ * executes the operation and always releases the lock afterwards. All locks of the service live in the namespace of
+ * {@link DistributedReadWriteLock}, whatever the configuration of the service, so services of different
+ * configurations locking the same name exclude each other. Read/write lock proxies are cached per lock name
+ * in a bounded cache (see {@link LockProxyCache}), so repeated locking of the same name does not create the proxy again.
+ * </p>
+ *
+ * <p>
+ * Acquire and hold timings of all locks taken through the service are recorded in {@link LockStatistics}.
+ * </p>
+ *
+ * <p>
+ * Waiting for a lock of the {@link DistributedReadWriteLock} namespace which would deadlock fails immediately with
+ * a {@link DeadlockException} (a {@link TimeoutException}) instead of waiting for the whole wait time, see
+ * {@link WaitForGraph}, unless the server disables the detection (see
+ * {@link HazelcastConfiguration#isDeadlockDetection()}). Similarly, if the server limits the number of waiters (see
+ * {@link HazelcastConfiguration#getLockMaxWaiters()}), an acquisition rejected by an overloaded server fails
+ * immediately with an {@link OverloadedException}.
+ * </p>
+ *
+ * <p>
+ * With the {@link LockBackendType#IN_PROCESS} backend (see {@link HazelcastConfiguration#getLockBackend()}) the locks
+ * live in the JVM instead of the cluster, see {@link InProcessLockBackend}; lock coalescing and biased locking
+ * do not apply then.
+ * </p>
+ *
+ * <p>
+ * With lock striping (see {@link HazelcastConfiguration#getLockStripes()}) the names are hashed onto a fixed number
+ * of stripes, which bounds the state of the lock server at the price of false contention, see
+ * {@link StripedLockBackend}. As with the in-process backend, lock coalescing and biased locking do not apply.
+ * </p>
+ *
+ * <p>
+ * This class is thread-safe; a single instance is meant to be shared by all threads of the application.
+ * The constructor starts a background scheduler thread and registers the statistics MBean, both of which are
+ * released by {@link #shutdown()} only, so the service must be shut down when the application stops.
+ * </p>
+ */
+public class LockService {
+
+    private static final ILogger LOGGER = Logger.getLogger(LockService.class);
+
+    private final LockBackend backend;
+    private final ThreadHoldsLockBackend threadHoldsBackend;
+    private final long waitTimeSecs;
+    private final long leaseTimeSecs;
+    private final LockProxyCache<DistributedReadWriteLock> readWriteLocks;
+    private final LockStatistics statistics = new LockStatistics();
+    private final LocalLockCoalescer coalescer;
+    private final ScheduledExecutorService scheduler = AsyncLockAcquirer.createScheduler();
+    private final AsyncLockAcquirer asyncAcquirer;
+    private final boolean virtualThreadMode;
+    private final LeaseRenewer leaseRenewer;
+    private final BiasedLockRetainer biasedRetainer;
+    private final String threadOwnerPrefix;
+    private final ThreadLocal<Map<String, Integer>> threadHolds = ThreadLocal.withInitial(HashMap::new);
+    private final ObjectName statisticsName;
+
+    /**
+     * Creates the lock service on top of a connected Hazelcast client node.
+     *
+     * @param clientNode    The client node; {@link HazelcastClientNode#ensureHazelcastNode} must have been called.
+     * @param configuration The configuration providing the wait and lease times.
+     */
+    public LockService(HazelcastClientNode clientNode, HazelcastConfiguration configuration) {
+        this(clientNode.getHzInstance(), configuration);
+    }
+
+    /**
+     * Creates the lock service with the {@link LockBackendType#IN_PROCESS} backend, which needs no Hazelcast instance.
+     *
+     * @param configuration The configuration providing the wait and lease times.
+     * @throws IllegalArgumentException If the configuration selects the {@link LockBackendType#HAZELCAST} backend.
+     */
+    public LockService(HazelcastConfiguration configuration) {
+        this((HazelcastInstance) null, configuration);
+    }
+
+    /**
+     * Creates the lock service on top of the given Hazelcast instance.
+     *
+     * @param hzInstance    The Hazelcast instance (client or member) used to obtain the locks; not used (may be
+     *                      {@code null}) with the {@link LockBackendType#IN_PROCESS} backend.
+     * @param configuration The configuration providing the wait and lease times.
+     * @throws IllegalStateException If other lock services of the cluster (or of the in-process instance) use
+     *                               a different number of lock stripes, see {@link HazelcastConfiguration#getLockStripes()}.
+     */
+    public LockService(HazelcastInstance hzInstance, HazelcastConfiguration configuration) {
+        boolean inProcess = configuration.getLockBackend() == LockBackendType.IN_PROCESS;
+        if (hzInstance == null && !inProcess) {
+            throw new IllegalArgumentException("Hazelcast instance is not initialized");
+        }
+        this.waitTimeSecs = configuration.getWaitTimeSecs();
+        this.leaseTimeSecs = configuration.getLeaseTimeSecs();
+        LockBackend locksBackend = inProcess
+                ? new InProcessLockBackend(configuration)
+                : new HazelcastLockBackend(hzInstance, leaseTimeSecs);
+        locksBackend.registerStripes(configuration.getLockStripes());
+        boolean striped = configuration.getLockStripes() > 0;
+        if (striped) {
+            locksBackend = new StripedLockBackend(locksBackend, configuration.getLockStripes(), statistics);
+        }
+        this.virtualThreadMode = configuration.isVirtualThreadMode();
+        boolean coalescing = configuration.isLockCoalescing() && !inProcess && !striped && !virtualThreadMode
+                && !configuration.isLeaseRenewal();
+        boolean biased = configuration.isBiasedLocking() && !inProcess && !striped && !virtualThreadMode;
+        this.threadHoldsBackend = coalescing || biased ? new ThreadHoldsLockBackend(locksBackend) : null;
+        this.backend = threadHoldsBackend != null ? threadHoldsBackend : locksBackend;
+        this.asyncAcquirer = new AsyncLockAcquirer(backend, waitTimeSecs, statistics, scheduler);
+        this.leaseRenewer = configuration.isLeaseRenewal() ? new LeaseRenewer(backend, leaseTimeSecs) : null;
+        if (leaseRenewer != null) {
+            leaseRenewer.start(scheduler);
+        }
+        this.coalescer = coalescing
+                ? new LocalLockCoalescer(backend, configuration.getLockHandoffLimit(), leaseTimeSecs, statistics)
+                : null;
+        this.biasedRetainer = biased
+                ? new BiasedLockRetainer(hzInstance, leaseTimeSecs, configuration.getBiasedLockGraceMillis(), scheduler,
+                statistics)
+                : null;
+        this.threadOwnerPrefix = backend.getOwnerPrefix();
+        this.readWriteLocks = new LockProxyCache<>(configuration.getLockCacheSize(), configuration.getLockCacheIdleSecs());
+        long idleSecs = Math.max(1, configuration.getLockCacheIdleSecs());
+        scheduler.scheduleWithFixedDelay(() -> {
+            readWriteLocks.evictIdle();
+            backend.evictIdle();
+        }, idleSecs, idleSecs, TimeUnit.SECONDS);
+        this.statisticsName = JmxSupport.register(statistics, "LockService", inProcess ? "in-process" : hzInstance.getName());
+    }
+
+    /**
+     * Executes the operation while holding the distributed lock of the given name.
+     * <p>
+     * The lock is acquired with the configured wait time and lease time (both in seconds) and it is released
+     * when the operation finishes, regardless of its outcome. The lock is reentrant for the calling thread.
+     * It is the write lock of the name, so this is the same as {@link #doWithWriteLock} apart from the local
+     * optimizations below.
+     * </p>
+     *
+     * <p>
+     * With {@link HazelcastConfiguration#isLockCoalescing()} enabled, local threads contending for the same lock
+     * queue locally and the distributed lock is handed over between them, see {@link LocalLockCoalescer}. The other
+     * locks of the name taken by the thread inside the operation re-enter the coalesced lock, while a thread already
+     * holding the name (e.g. its read lock) takes it as {@link #doWithWriteLock} does.
+     * </p>
+     *
+     * <p>
+     * With {@link HazelcastConfiguration#isBiasedLocking()} enabled, the lock is kept by this service for a short
+     * grace period after the operation, see {@link BiasedLockRetainer}; this takes precedence over coalescing. As with
+     * coalescing, the other locks of the name taken by the thread inside the operation re-enter the biased lock.
+     * </p>
+     *
+     *
+     * @param lockName  The name of the lock, typically a PID.
+     * @param operation The operation to execute.
+     * @param <T>       The type of the result returned by the operation.
+     * @return The result of the operation.
+     * @throws TimeoutException If the lock could not be acquired within the configured wait time,
+     *                          or if thrown by the operation itself.
+     */
+    public <T> T doWithLock(String lockName, LockOperation<T> operation) throws TimeoutException {
+        if (biasedRetainer != null && !threadHoldsBackend.isHeldByCurrentThread(lockName)) {
+            return doWithBiasedLock(lockName, operation);
+        }
+        if (coalescer != null && !threadHoldsBackend.isHeldByCurrentThread(lockName)) {
+            return doWithCoalescedLock(lockName, operation);
+        }
+        return doWithReadWriteLock(lockName, LockMode.EXCLUSIVE, operation);
+    }
+
+    /**
+     * Executes the operation while holding the distributed read lock of the given name.
+     * <p>
+     * Read locks of the same name are shared, any number of readers may execute at the same time.
+     * See {@link DistributedReadWriteLock} for details.
+     * </p>
+     *
+     * @param lockName  The name of the lock, typically a PID.
+     * @param operation The operation to execute.
+     * @param <T>       The type of the result returned by the operation.
+     * @return The result of the operation.
+     * @throws TimeoutException If the lock could not be acquired within the configured wait time,
+     *                          or if thrown by the operation itself.
+     */
+    public <T> T doWithReadLock(String lockName, LockOperation<T> operation) throws TimeoutException {
+        return doWithReadWriteLock(lockName, LockMode.SHARED, operation);
+    }
+
+    /**
+     * Executes the operation while holding the distributed write lock of the given name.
+     * <p>
+     * The write lock excludes all readers and other writers of the same name. A thread already holding
+     * the read lock upgrades it for the duration of the operation. See {@link DistributedReadWriteLock} for details.
+     * </p>
+     *
+     * @param lockName  The name of the lock, typically a PID.
+     * @param operation The operation to execute.
+     * @param <T>       The type of the result returned by the operation.
+     * @return The result of the operation.
+     * @throws TimeoutException If the lock could not be acquired within the configured wait time,
+     *                          or if thrown by the operation itself.
+     */
+    public <T> T doWithWriteLock(String lockName, LockOperation<T> operation) throws TimeoutException {
+        return doWithReadWriteLock(lockName, LockMode.EXCLUSIVE, operation);
+    }
+
+    /**
+     * Acquires the write locks of all given names, or none of them.
+     * <p>
+     * All names are requested at once by batched operations grouped per partition owner; if any of them is
+     * not available, the acquired ones are released and the attempt is repeated after a randomized backoff.
+     * The caller never holds a part of the set while waiting for the rest, so concurrent calls with overlapping
+     * sets cannot deadlock, but under heavy contention they may keep failing each other (livelock) until the wait
+     * time elapses; the names are not acquired one by one in a global order. See {@link DistributedMultiLock}
+     * for details. The returned handle must be released by the calling thread.
+     * </p>
+     *
+     * @param lockNames The names of the locks, e.g. PIDs of a monograph and all its pages.
+     * @return The handle holding all the locks.
+     * @throws TimeoutException If the locks could not be acquired within the configured wait time.
+     */
+    public LockHandle lockAll(Collection<String> lockNames) throws TimeoutException {
+        return lockAll(new DistributedMultiLock(lockNames, backend));
+    }
+
+    /**
+     * Locks a name of a hierarchy, e.g. a page of a monograph, in the given mode and all its ancestors in
+     * the corresponding intention mode, see {@link LockMode}.
+     * <p>
+     * For example {@code lockHierarchy(List.of(monograph), LockMode.EXCLUSIVE)} locks the whole monograph in one
+     * operation, while {@code lockHierarchy(List.of(monograph, page), LockMode.SHARED)} holds only an intention lock
+     * on the monograph, which does not exclude readers and writers of its other pages nor anybody working on other
+     * monographs. All locks of the path are acquired at once as with {@link #lockAll(Collection)}; the returned
+     * handle must be released by the calling thread.
+     * </p>
+     *
+     * <p>
+     * Names colocated by the root of the path (see {@link LockNames#colocated(String, String)}) are locked by a single
+     * operation of a single member.
+     * </p>
+     *
+     * @param path The path of names from the root of the hierarchy to the locked name.
+     * @param mode The mode of the last name of the path.
+     * @return The handle holding all the locks of the path.
+     * @throws TimeoutException If the locks could not be acquired within the configured wait time.
+     */
+    public LockHandle lockHierarchy(List<String> path, LockMode mode) throws TimeoutException {
+        return lockAll(new DistributedMultiLock(DistributedMultiLock.hierarchy(path, mode), backend));
+    }
+
+    /**
+     * Executes the operation while holding the hierarchical lock of the path, see {@link #lockHierarchy(List, LockMode)}.
+     *
+     * @param path      The path of names from the root of the hierarchy to the locked name.
+     * @param mode      The mode of the last name of the path.
+     * @param operation The operation to execute.
+     * @param <T>       The type of the result returned by the operation.
+     * @return The result of the operation.
+     * @throws TimeoutException If the locks could not be acquired within the configured wait time,
+     *                          or if thrown by the operation itself.
+     */
+    public <T> T doWithHierarchicalLock(List<String> path, LockMode mode, LockOperation<T> operation)
+            throws TimeoutException {
+        return doWithLocks(new DistributedMultiLock(DistributedMultiLock.hierarchy(path, mode), backend),
+                operation);
+    }
+
+    private LockHandle lockAll(DistributedMultiLock lock) throws TimeoutException {
+        long waitStart = System.nanoTime();
+        AcquireResult result = tryLockAll(lock);
+        long waitNanos = System.nanoTime() - waitStart;
+        if (result == AcquireResult.DEADLOCK) {
+            throw deadlock(lock.getLockNames().toString(), waitStart);
+        }
+        if (result == AcquireResult.OVERLOADED) {
+            throw overloaded(lock.getLockNames().toString(), waitStart);
+        }
+        if (result != AcquireResult.GRANTED) {
+            statistics.recordTimeout(lock.getLockNames().toString(), waitNanos);
+            throw new TimeoutException("Could not acquire locks " + lock.getLockNames() + " within " + waitTimeSecs
+                    + " " + TimeUnit.SECONDS);
+        }
+        statistics.recordAcquire(lock.getLockNames().toString(), waitNanos);
+        return lock;
+    }
+
+    /**
+     * Executes the operation while holding the write locks of all given names, see {@link #lockAll(Collection)}.
+     *
+     * @param lockNames The names of the locks.
+     * @param operation The operation to execute.
+     * @param <T>       The type of the result returned by the operation.
+     * @return The result of the operation.
+     * @throws TimeoutException If the locks could not be acquired within the configured wait time,
+     *                          or if thrown by the operation itself.
+     */
+    public <T> T doWithLocks(Collection<String> lockNames, LockOperation<T> operation) throws TimeoutException {
+        return doWithLocks(new DistributedMultiLock(lockNames, backend), operation);
+    }
+
+    private <T> T doWithLocks(DistributedMultiLock lock, LockOperation<T> operation) throws TimeoutException {
+        long waitStart = System.nanoTime();
+        AcquireResult result = tryLockAll(lock);
+        if (result == AcquireResult.DEADLOCK) {
+            throw deadlock(lock.getLockNames().toString(), waitStart);
+        }
+        if (result == AcquireResult.OVERLOADED) {
+            throw overloaded(lock.getLockNames().toString(), waitStart);
+        }
+        boolean acquired = result == AcquireResult.GRANTED;
+        Runnable unlock = acquired ? renewing(lock.getLockNames(), lock::unlock) : lock::unlock;
+        return execute(lock.getLockNames().toString(), waitStart, acquired, unlock, operation);
+    }
+
+    /**
+     * Acquires the write lock of the given name without blocking the calling thread.
+     * <p>
+     * The lock belongs to the returned handle rather than to a thread, so it may be released from any thread
+     * or continuation. Waiting does not occupy any thread; see {@link AsyncLockAcquirer} for details.
+     * The lock lives in the namespace of {@link DistributedReadWriteLock}.
+     * </p>
+     *
+     * @param lockName The name of the lock, typically a PID.
+     * @return The future completed with the lock handle, or completed exceptionally with {@link TimeoutException}
+     * if the lock could not be acquired within the configured wait time.
+     */
+    public CompletableFuture<LockHandle> acquireAsync(String lockName) {
+        return acquireAsync(lockName, LockMode.EXCLUSIVE);
+    }
+
+    /**
+     * Acquires the lock of the given name in the given mode without blocking the calling thread,
+     * see {@link #acquireAsync(String)}.
+     *
+     * @param lockName The name of the lock.
+     * @param mode     The requested mode.
+     * @return The future completed with the lock handle.
+     */
+    public CompletableFuture<LockHandle> acquireAsync(String lockName, LockMode mode) {
+        return asyncAcquirer.acquire(lockName, mode);
+    }
+
+    /**
+     * Returns the distributed read/write lock of the given name for explicit locking, e.g. for upgrading
+     * or downgrading the lock. The lease time is taken from the configuration.
+     *
+     * @param lockName The name of the lock.
+     * @return The read/write lock.
+     */
+    public DistributedReadWriteLock getReadWriteLock(String lockName) {
+        return readWriteLocks.get(lockName, name -> new DistributedReadWriteLock(name, backend));
+    }
+
+    private AcquireResult tryLockAll(DistributedMultiLock lock) {
+        try {
+            return lock.acquire(waitTimeSecs, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for locks " + lock.getLockNames(), e);
+        }
+    }
+
+    private <T> T doWithCoalescedLock(String lockName, LockOperation<T> operation) throws TimeoutException {
+        long waitStart = System.nanoTime();
+        LocalLockCoalescer.LocalLock local;
+        try {
+            local = coalescer.tryLock(lockName, TimeUnit.SECONDS.toNanos(waitTimeSecs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for lock " + lockName, e);
+        } catch (DeadlockException e) {
+            throw deadlock(lockName, waitStart);
+        } catch (OverloadedException e) {
+            throw overloaded(lockName, waitStart);
+        }
+        if (local != null) {
+            threadHoldsBackend.cover(lockName);
+        }
+        return execute(lockName, waitStart, local != null, () -> {
+            threadHoldsBackend.uncover(lockName);
+            coalescer.unlock(local);
+        }, operation);
+    }
+
+    private <T> T doWithBiasedLock(String lockName, LockOperation<T> operation) throws TimeoutException {
+        long waitStart = System.nanoTime();
+        BiasedLockRetainer.BiasedLock biased;
+        try {
+            biased = biasedRetainer.tryLock(lockName, TimeUnit.SECONDS.toNanos(waitTimeSecs));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for lock " + lockName, e);
+        } catch (DeadlockException e) {
+            throw deadlock(lockName, waitStart);
+        } catch (OverloadedException e) {
+            throw overloaded(lockName, waitStart);
+        }
+        if (biased != null) {
+            threadHoldsBackend.cover(lockName);
+        }
+        Runnable unlock = () -> {
+            threadHoldsBackend.uncover(lockName);
+            biasedRetainer.unlock(biased);
+        };
+        return execute(lockName, waitStart, biased != null,
+                biased != null ? renewing(biasedRetainer.getOwner(), Collections.singleton(lockName), unlock) : unlock,
+                operation);
+    }
+
+    private <T> T doWithReadWriteLock(String lockName, LockMode mode, LockOperation<T> operation) throws TimeoutException {
+        if (virtualThreadMode) {
+            return doWithQueuedLock(lockName, mode, operation);
+        }
+        DistributedReadWriteLock lock = getReadWriteLock(lockName);
+        long waitStart = System.nanoTime();
+        AcquireResult result;
+        try {
+            result = lock.acquire(mode, waitTimeSecs, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for lock " + lockName, e);
+        }
+        if (result == AcquireResult.DEADLOCK) {
+            throw deadlock(lockName, waitStart);
+        }
+        if (result == AcquireResult.OVERLOADED) {
+            throw overloaded(lockName, waitStart);
+        }
+        boolean acquired = result == AcquireResult.GRANTED;
+        Runnable unlock = () -> lock.unlock(mode);
+        return execute(lockName, waitStart, acquired, acquired ? renewing(Collections.singleton(lockName), unlock) : unlock,
+                operation);
+    }
+
+    /**
+     * Virtual thread mode: the calling thread owns the lock as usual, but the acquisition goes through
+     * the asynchronous, locally queued path and the thread waits on a {@link CompletableFuture}, which parks
+     * a virtual thread without pinning its carrier.
+     */
+    private <T> T doWithQueuedLock(String lockName, LockMode mode, LockOperation<T> operation) throws TimeoutException {
+        Map<String, Integer> holds = threadHolds.get();
+        boolean reentrant = holds.containsKey(lockName);
+        long waitStart = System.nanoTime();
+        CompletableFuture<LockHandle> future = asyncAcquirer.acquire(lockName, mode,
+                DistributedReadWriteLock.threadOwner(threadOwnerPrefix), !reentrant, false);
+        AsyncLockHandle handle;
+        try {
+            handle = (AsyncLockHandle) future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for lock " + lockName, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DeadlockException) {
+                throw deadlock(lockName, waitStart);
+            }
+            if (e.getCause() instanceof OverloadedException) {
+                throw overloaded(lockName, waitStart);
+            }
+            if (!(e.getCause() instanceof TimeoutException)) {
+                throw new IllegalStateException("Could not acquire lock " + lockName, e.getCause());
+            }
+            handle = null;
+        }
+        if (handle != null) {
+            holds.merge(lockName, 1, Integer::sum);
+        }
+        AsyncLockHandle acquired = handle;
+        Runnable unlock = () -> {
+            holds.computeIfPresent(lockName, (name, count) -> count == 1 ? null : count - 1);
+            try {
+                acquired.releaseAsync().join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IllegalMonitorStateException) {
+                    throw (IllegalMonitorStateException) e.getCause();
+                }
+                throw e;
+            }
+        };
+        return execute(lockName, waitStart, acquired != null,
+                acquired != null ? renewing(Collections.singleton(lockName), unlock) : unlock, operation);
+    }
+
+    /**
+     * Registers the locks just acquired by the calling thread for the lease renewal, if enabled.
+     *
+     * @return The unlock action, which stops the renewal before the locks are released.
+     */
+    private Runnable renewing(Collection<String> lockNames, Runnable unlock) {
+        // names re-entered through a biased lock are held, and renewed, by the retainer
+        Collection<String> owned = threadHoldsBackend != null ? threadHoldsBackend.uncovered(lockNames) : lockNames;
+        return renewing(DistributedReadWriteLock.threadOwner(threadOwnerPrefix), owned, unlock);
+    }
+
+    private Runnable renewing(String owner, Collection<String> lockNames, Runnable unlock) {
+        if (leaseRenewer == null) {
+            return unlock;
+        }
+        leaseRenewer.register(owner, lockNames);
+        return () -> {
+            leaseRenewer.unregister(owner, lockNames);
+            unlock.run();
+        };
+    }
+
+    private DeadlockException deadlock(String lockName, long waitStart) {
+        statistics.recordDeadlock(lockName, System.nanoTime() - waitStart);
+        return new DeadlockException("Deadlock detected while waiting for lock " + lockName);
+    }
+
+    private OverloadedException overloaded(String lockName, long waitStart) {
+        statistics.recordOverload(lockName, System.nanoTime() - waitStart);
+        return new OverloadedException("Too many waiters for lock " + lockName);
+    }
+
+    private <T> T execute(String lockName, long waitStart, boolean acquired, Runnable unlock,
+                          LockOperation<T> operation) throws TimeoutException {
+        long acquiredAt = System.nanoTime();
+        if (!acquired) {
+            statistics.recordTimeout(lockName, acquiredAt - waitStart);
+            throw new TimeoutException("Could not acquire lock " + lockName + " within " + waitTimeSecs
+                    + " " + TimeUnit.SECONDS);
+        }
+        statistics.recordAcquire(lockName, acquiredAt - waitStart);
+        try {
+            return operation.execute();
+        } finally {
+            try {
+                unlock.run();
+            } catch (IllegalMonitorStateException e) {
+                // lease expired while the operation was running, the lock may already be owned by someone else
+                LOGGER.warning("Lock " + lockName + " was not held on unlock, lease of " + leaseTimeSecs
+                        + " " + TimeUnit.SECONDS + " probably expired");
+            }
+            statistics.recordHold(System.nanoTime() - acquiredAt);
+        }
+    }
+
+    /**
+     * Stops the background scheduler of the service, cancels pending asynchronous acquisitions
+     * and unregisters the statistics MBean. Biased locks retained after use are released, held locks are not.
+     */
+    public void shutdown() {
+        if (biasedRetainer != null) {
+            biasedRetainer.shutdown();
+        }
+        scheduler.shutdownNow();
+        asyncAcquirer.cancelAll();
+        JmxSupport.unregister(statisticsName);
+    }
+
+    /**
+     * Returns the statistics of the locks taken through this service.
+     *
+     * @return The lock statistics.
+     */
+    public LockStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns the number of lock proxies currently cached by this service.
+     *
+     * @return The number of cached lock proxies.
+     */
+    public int getCachedLockCount() {
+        return readWriteLocks.size();
+    }
+
+    LockBackend getBackend() {
+        return backend;
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * State of a {@link DistributedReadWriteLock} stored as a value of the lock map.
+ * <p>
+ * The state keeps, for every owner, the number of holds per {@link LockMode} and the time its lease expires.
+ * Owners whose lease expired are dropped before every state change, so a crashed holder blocks the others
+ * only until its lease runs out.
+ * </p>
+ *
+ * <p>
+ * The map keeps the states serialized, so the state is a {@link DataSerializable} with a compact binary form
+ * (a few dozen bytes per holder, no class descriptors) instead of a graph of heap objects per lock; only the
+ * states currently processed are deserialized. Neither the map entry nor the state has a scheduled task of its
+ * own, the leases are expired by the {@link LeaseTimingWheel} of the member.
+ * </p>
+ *
+ * <p>
+ * This class is not thread-safe; it is only ever modified inside a {@link LockStateProcessor} which runs
+ * on the partition thread owning the lock entry.
+ * </p>
+ */
+public class LockState implements DataSerializable {
+
+    private final Map<String, Holder> holders = new HashMap<>(4);
+    private boolean revocationRequested;
+
+    /**
+     * Tries to grant the mode to the owner. Expired holders should be dropped by {@link #expire(long)} first.
+     *
+     * @param owner       The owner identifier.
+     * @param mode        The requested mode.
+     * @param now         Current time in milliseconds.
+     * @param leaseMillis The lease of the hold in milliseconds.
+     * @return {@code true} if the mode was granted.
+     */
+    boolean tryAcquire(String owner, LockMode mode, long now, long leaseMillis) {
+        return tryAcquire(owner, mode, now, leaseMillis, false);
+    }
+
+    /**
+     * Tries to grant the mode to the owner, see {@link #tryAcquire(String, LockMode, long, long)}.
+     *
+     * @param biased {@code true} if the owner keeps the lock after use until another owner asks for it,
+     *               see {@link #requestRevocation()}.
+     */
+    boolean tryAcquire(String owner, LockMode mode, long now, long leaseMillis, boolean biased) {
+        for (Map.Entry<String, Holder> entry : holders.entrySet()) {
+            if (!entry.getKey().equals(owner) && !entry.getValue().isCompatibleWith(mode)) {
+                return false;
+            }
+        }
+        Holder holder = holders.computeIfAbsent(owner, o -> new Holder());
+        holder.counts[mode.ordinal()]++;
+        holder.leaseExpiresAt = now + leaseMillis;
+        holder.biased = biased;
+        return true;
+    }
+
+    /**
+     * Returns the other owners holding the lock in a mode which conflicts with the requested one.
+     *
+     * @param owner The requesting owner.
+     * @param mode  The requested mode.
+     * @return The conflicting owners, empty if the mode could be granted.
+     */
+    Set<String> getConflictingOwners(String owner, LockMode mode) {
+        Set<String> owners = new HashSet<>(4);
+        for (Map.Entry<String, Holder> entry : holders.entrySet()) {
+            if (!entry.getKey().equals(owner) && !entry.getValue().isCompatibleWith(mode)) {
+                owners.add(entry.getKey());
+            }
+        }
+        return owners;
+    }
+
+    /**
+     * Called when an acquisition was rejected; asks the biased holders, if any, to give the lock up.
+     *
+     * @return {@code true} if the state changed, i.e. the revocation was not requested before.
+     */
+    boolean requestRevocation() {
+        if (revocationRequested) {
+            return false;
+        }
+        for (Holder holder : holders.values()) {
+            if (holder.biased) {
+                revocationRequested = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tests whether another owner waits for the lock biased to the given owner.
+     *
+     * @param owner The owner identifier.
+     * @return {@code true} if the owner holds the lock biased and should give it up.
+     */
+    boolean isRevocationRequested(String owner) {
+        Holder holder = holders.get(owner);
+        return revocationRequested && holder != null && holder.biased;
+    }
+
+    /**
+     * Releases one hold of the mode by the owner.
+     *
+     * @param owner The owner identifier.
+     * @param mode  The released mode.
+     * @return {@code false} if the owner did not hold the mode (e.g. its lease expired).
+     */
+    boolean release(String owner, LockMode mode) {
+        Holder holder = holders.get(owner);
+        if (holder == null || holder.counts[mode.ordinal()] == 0) {
+            return false;
+        }
+        holder.counts[mode.ordinal()]--;
+        if (holder.isEmpty()) {
+            holders.remove(owner);
+            revocationRequested = false;
+        }
+        return true;
+    }
+
+    /**
+     * Extends the lease of all holds of the owner.
+     *
+     * @param owner       The owner identifier.
+     * @param now         Current time in milliseconds.
+     * @param leaseMillis The new lease in milliseconds, counted from now.
+     * @return {@code false} if the owner does not hold the lock (e.g. its lease already expired).
+     */
+    boolean renew(String owner, long now, long leaseMillis) {
+        Holder holder = holders.get(owner);
+        if (holder == null) {
+            return false;
+        }
+        holder.leaseExpiresAt = Math.max(holder.leaseExpiresAt, now + leaseMillis);
+        return true;
+    }
+
+    /**
+     * Tests whether the lock is held by anybody.
+     *
+     * @return {@code true} if there is no holder.
+     */
+    boolean isFree() {
+        return holders.isEmpty();
+    }
+
+    /**
+     * Tests whether the owner holds the lock in any mode.
+     *
+     * @param owner The owner identifier.
+     * @return {@code true} if the owner holds the lock.
+     */
+    boolean isHeldBy(String owner) {
+        return holders.containsKey(owner);
+    }
+
+    /**
+     * Tests whether the owner holds the mode.
+     *
+     * @param owner The owner identifier.
+     * @param mode  The mode.
+     * @return {@code true} if the mode is held by the owner.
+     */
+    boolean isHeldBy(String owner, LockMode mode) {
+        Holder holder = holders.get(owner);
+        return holder != null && holder.counts[mode.ordinal()] > 0;
+    }
+
+    /**
+     * Drops the holders whose lease expired.
+     *
+     * @param now Current time in milliseconds.
+     * @return {@code true} if any holder was dropped.
+     */
+    boolean expire(long now) {
+        boolean expired = false;
+        Iterator<Holder> it = holders.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().leaseExpiresAt <= now) {
+                it.remove();
+                expired = true;
+            }
+        }
+        if (expired) {
+            revocationRequested = false;
+        }
+        return expired;
+    }
+
+    /**
+     * Returns the time the first lease of the lock expires.
+     *
+     * @return The earliest lease expiration in milliseconds, or {@link Long#MAX_VALUE} if the lock is free.
+     */
+    long nextExpiry() {
+        long next = Long.MAX_VALUE;
+        for (Holder holder : holders.values()) {
+            next = Math.min(next, holder.leaseExpiresAt);
+        }
+        return next;
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        out.writeBoolean(revocationRequested);
+        out.writeInt(holders.size());
+        for (Map.Entry<String, Holder> entry : holders.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().writeData(out);
+        }
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        revocationRequested = in.readBoolean();
+        int size = in.readInt();
+        holders.clear();
+        for (int i = 0; i < size; i++) {
+            String owner = in.readUTF();
+            Holder holder = new Holder();
+            holder.readData(in);
+            holders.put(owner, holder);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LockState{holders=" + holders + ", revocationRequested=" + revocationRequested + '}';
+    }
+
+    private static class Holder {
+
+        private final int[] counts = new int[LockMode.values().length];
+        private long leaseExpiresAt;
+        private boolean biased;
+
+        boolean isCompatibleWith(LockMode requested) {
+            LockMode[] modes = LockMode.values();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0 && !requested.isCompatibleWith(modes[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isEmpty() {
+            for (int count : counts) {
+                if (count > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Writes the bit set of the held modes followed by their counts, so a typical holder costs one count.
+         */
+        void writeData(ObjectDataOutput out) throws IOException {
+            int held = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    held |= 1 << i;
+                }
+            }
+            out.writeByte(held);
+            for (int count : counts) {
+                if (count > 0) {
+                    out.writeInt(count);
+                }
+            }
+            out.writeLong(leaseExpiresAt);
+            out.writeBoolean(biased);
+        }
+
+        void readData(ObjectDataInput in) throws IOException {
+            int held = in.readByte();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = (held & (1 << i)) != 0 ? in.readInt() : 0;
+            }
+            leaseExpiresAt = in.readLong();
+            biased = in.readBoolean();
+        }
+
+        @Override
+        public String toString() {
+            return "Holder{counts=" + Arrays.toString(counts) + ", leaseExpiresAt=" + leaseExpiresAt
+                    + ", biased=" + biased + '}';
+        }
+    }
+}
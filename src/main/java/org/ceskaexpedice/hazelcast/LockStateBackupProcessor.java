@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.map.EntryBackupProcessor;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.DataSerializable;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Copies the states of the lock entries changed by a {@link LockStateProcessor} to the backup replicas.
+ * <p>
+ * Free locks are represented by an empty {@link LockState} and removed from the backup as well.
+ * The processor is sent in the compact form of the states, see {@link LockState#writeData}.
+ * </p>
+ */
+public class LockStateBackupProcessor implements EntryBackupProcessor<String, LockState>, DataSerializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Map<String, LockState> states;
+
+    /**
+     * Creates an empty processor to be filled by {@link #readData(ObjectDataInput)}.
+     */
+    public LockStateBackupProcessor() {
+    }
+
+    LockStateBackupProcessor(Map<String, LockState> states) {
+        this.states = states;
+    }
+
+    @Override
+    public void processBackup(Map.Entry<String, LockState> entry) {
+        LockState state = states.get(entry.getKey());
+        if (state != null) {
+            entry.setValue(state.isFree() ? null : state);
+        }
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        out.writeInt(states.size());
+        for (Map.Entry<String, LockState> entry : states.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().writeData(out);
+        }
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        int size = in.readInt();
+        states = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            String lockName = in.readUTF();
+            LockState state = new LockState();
+            state.readData(in);
+            states.put(lockName, state);
+        }
+    }
+}
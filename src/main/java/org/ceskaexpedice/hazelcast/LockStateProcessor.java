@@ -0,0 +1,328 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+import com.hazelcast.map.EntryBackupProcessor;
+import com.hazelcast.map.EntryProcessor;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Entry processor changing the {@link LockState} of a single lock entry.
+ * <p>
+ * The processor runs atomically on the member owning the partition of the lock name, so every acquire
+ * or release attempt costs exactly one round trip. Entries of free locks are removed from the map, so the map
+ * only holds the locks which are currently held.
+ * </p>
+ *
+ * <p>
+ * The outcome of an attempt depends on the state of the primary member (its clock, {@link WaitQueues},
+ * {@link WaitForGraph}), so the backup replicas do not repeat the operation; they receive the resulting states
+ * of the changed entries, see {@link LockStateBackupProcessor}. Attempts which change nothing, typically
+ * the polling of waiters, cause no backup traffic at all.
+ * </p>
+ *
+ * <p>
+ * Every lock left held is scheduled on the {@link LeaseTimingWheel} of the member, which expires its leases
+ * by an {@link Operation#EXPIRE} processor if nobody touches the lock before.
+ * A member being shut down admits no new holders, see {@link DrainState}.
+ * On the primary replica the outcome is recorded in the {@link ServerLockStatistics} of the member, if the
+ * member publishes them in its user context.
+ * </p>
+ */
+public class LockStateProcessor implements EntryProcessor<String, LockState>, HazelcastInstanceAware {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Operations supported by the processor.
+     */
+    public enum Operation {
+        ACQUIRE, ACQUIRE_BIASED, RELEASE, RENEW, EXPIRE, CANCEL
+    }
+
+    private final Operation operation;
+    private final String owner;
+    private final LockMode mode;
+    private final Map<String, LockMode> modes;
+    private final Map<String, Set<String>> owners;
+    private final long leaseMillis;
+    private transient ServerLockStatistics statistics;
+    private transient WaitForGraph waitForGraph;
+    private transient WaitQueues waitQueues;
+    private transient DrainState drainState;
+    private transient LeaseTimingWheel leaseWheel;
+    // the instance may be shared by the partition threads processing the keys of executeOnKeys, every partition
+    // operation collects its changes on its own thread, see getBackupProcessor
+    private transient volatile ThreadLocal<ChangedStates> changedStates;
+
+    LockStateProcessor(Operation operation, String owner, LockMode mode, long leaseMillis) {
+        this(operation, owner, mode, null, null, leaseMillis);
+    }
+
+    private LockStateProcessor(Operation operation, String owner, LockMode mode, Map<String, LockMode> modes,
+                               Map<String, Set<String>> owners, long leaseMillis) {
+        this.operation = operation;
+        this.owner = owner;
+        this.mode = mode;
+        this.modes = modes;
+        this.owners = owners;
+        this.leaseMillis = leaseMillis;
+    }
+
+    static LockStateProcessor acquire(String owner, LockMode mode, long leaseMillis) {
+        return new LockStateProcessor(Operation.ACQUIRE, owner, mode, leaseMillis);
+    }
+
+    /**
+     * Acquires a different mode for every key, used with {@link com.hazelcast.core.IMap#executeOnKeys}.
+     */
+    static LockStateProcessor acquire(String owner, Map<String, LockMode> modes, long leaseMillis) {
+        return new LockStateProcessor(Operation.ACQUIRE, owner, null, modes, null, leaseMillis);
+    }
+
+    static LockStateProcessor acquireBiased(String owner, LockMode mode, long leaseMillis) {
+        return new LockStateProcessor(Operation.ACQUIRE_BIASED, owner, mode, leaseMillis);
+    }
+
+    static LockStateProcessor release(String owner, LockMode mode) {
+        return new LockStateProcessor(Operation.RELEASE, owner, mode, 0);
+    }
+
+    /**
+     * Releases a different mode for every key, used with {@link com.hazelcast.core.IMap#executeOnKeys}.
+     */
+    static LockStateProcessor release(String owner, Map<String, LockMode> modes) {
+        return new LockStateProcessor(Operation.RELEASE, owner, null, modes, null, 0);
+    }
+
+    /**
+     * Renews the holds of different owners for every key, used with {@link com.hazelcast.core.IMap#executeOnKeys}
+     * so that the leases of all holders of a client are renewed by one call.
+     *
+     * @param owners The owners of every lock name whose holds are renewed.
+     */
+    static LockStateProcessor renew(Map<String, Set<String>> owners, long leaseMillis) {
+        Map<String, Set<String>> copy = new HashMap<>(owners.size() * 2);
+        owners.forEach((lockName, lockOwners) -> copy.put(lockName, new HashSet<>(lockOwners)));
+        return new LockStateProcessor(Operation.RENEW, null, null, null, copy, leaseMillis);
+    }
+
+    /**
+     * Withdraws the wait of an owner which gave up acquiring the lock (it timed out, was interrupted or cancelled, or
+     * another lock of its set failed), so that the waiters behind it need not wait until its wait goes stale and its
+     * edge in the {@link WaitForGraph} does not close a false cycle. May be used with
+     * {@link com.hazelcast.core.IMap#executeOnKeys} as well.
+     */
+    static LockStateProcessor cancel(String owner) {
+        return new LockStateProcessor(Operation.CANCEL, owner, null, 0);
+    }
+
+    /**
+     * Drops the expired holders of every key, used by the {@link LeaseExpiryService}.
+     */
+    static LockStateProcessor expire() {
+        return new LockStateProcessor(Operation.EXPIRE, null, null, 0);
+    }
+
+    @Override
+    public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+        Map<String, Object> userContext = hazelcastInstance.getUserContext();
+        Object value = userContext.get(ServerLockStatistics.USER_CONTEXT_KEY);
+        statistics = value instanceof ServerLockStatistics ? (ServerLockStatistics) value : null;
+        value = userContext.get(WaitForGraph.USER_CONTEXT_KEY);
+        waitForGraph = value instanceof WaitForGraph ? (WaitForGraph) value : null;
+        value = userContext.get(WaitQueues.USER_CONTEXT_KEY);
+        waitQueues = value instanceof WaitQueues ? (WaitQueues) value : null;
+        value = userContext.get(DrainState.USER_CONTEXT_KEY);
+        drainState = value instanceof DrainState ? (DrainState) value : null;
+        value = userContext.get(LeaseTimingWheel.USER_CONTEXT_KEY);
+        leaseWheel = value instanceof LeaseTimingWheel ? (LeaseTimingWheel) value : null;
+    }
+
+    /**
+     * Applies the operation on the primary replica.
+     *
+     * @return The {@link AcquireResult} of acquire operations, whether the release succeeded, any lease expired or
+     * the cancelled owner was queued, or for renewals the owners which no longer held the lock ({@code null} if all
+     * holds were renewed).
+     */
+    @Override
+    public Object process(Map.Entry<String, LockState> entry) {
+        ChangedStates changed = changedStates().get();
+        if (changed.collected) {
+            // the first key of the next partition operation run by this thread
+            changed.states.clear();
+            changed.collected = false;
+        }
+        Object result = apply(entry, changed.states);
+        ServerLockStatistics stats = statistics;
+        if (stats != null) {
+            if (result == AcquireResult.GRANTED) {
+                stats.recordGrant();
+            } else if (result == AcquireResult.REJECTED) {
+                stats.recordRejection(entry.getKey());
+            } else if (result == AcquireResult.DEADLOCK) {
+                stats.recordDeadlock(entry.getKey());
+            } else if (result == AcquireResult.OVERLOADED) {
+                stats.recordOverload(entry.getKey());
+            } else if (operation == Operation.RELEASE && Boolean.TRUE.equals(result)) {
+                stats.recordRelease();
+            } else if (operation == Operation.EXPIRE && Boolean.TRUE.equals(result)) {
+                stats.recordExpiry();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the processor copying the changed states to the backup replicas.
+     * <p>
+     * Hazelcast calls this (possibly more than once) on the partition thread which has just processed the keys of
+     * a partition, so the returned processor carries the changes of that partition only. The changes are dropped
+     * when the thread processes the next partition.
+     * </p>
+     *
+     * @return The backup processor, or {@code null} if no entry changed.
+     */
+    @Override
+    public EntryBackupProcessor<String, LockState> getBackupProcessor() {
+        ChangedStates changed = changedStates().get();
+        changed.collected = true;
+        return changed.states.isEmpty() ? null : new LockStateBackupProcessor(new HashMap<>(changed.states));
+    }
+
+    private Object apply(Map.Entry<String, LockState> entry, Map<String, LockState> changedStates) {
+        LockState state = entry.getValue();
+        if (state == null) {
+            state = new LockState();
+        }
+        String lockName = entry.getKey();
+        long now = System.currentTimeMillis();
+        boolean changed = state.expire(now);
+        LockMode mode = modes == null ? this.mode : modes.get(lockName);
+        Object result;
+        switch (operation) {
+            case ACQUIRE:
+            case ACQUIRE_BIASED:
+                result = acquire(state, lockName, mode, now);
+                changed |= result == AcquireResult.GRANTED;
+                // a biased holder is notified by the update of the entry, see BiasedLockRetainer
+                changed |= result != AcquireResult.GRANTED && state.requestRevocation();
+                break;
+            case RELEASE:
+                boolean released = state.release(owner, mode);
+                changed |= released;
+                if (released && waitForGraph != null && !state.isHeldBy(owner)) {
+                    waitForGraph.released(owner, lockName);
+                }
+                result = released;
+                break;
+            case RENEW:
+                Set<String> lost = null;
+                for (String holder : owners.get(lockName)) {
+                    if (state.renew(holder, now, leaseMillis)) {
+                        changed = true;
+                    } else {
+                        if (lost == null) {
+                            lost = new HashSet<>();
+                        }
+                        lost.add(holder);
+                    }
+                }
+                result = lost;
+                break;
+            case EXPIRE:
+                result = changed;
+                break;
+            case CANCEL:
+                if (waitForGraph != null) {
+                    waitForGraph.cancelled(owner, lockName);
+                }
+                result = waitQueues != null && waitQueues.remove(lockName, owner);
+                break;
+            default:
+                throw new IllegalStateException("Unsupported operation " + operation);
+        }
+        // failed attempts leave the entry untouched (except the first one revoking a bias), so polling waiters
+        // do not cause writes and backups
+        if (changed) {
+            entry.setValue(state.isFree() ? null : state);
+            changedStates.put(lockName, state);
+        }
+        // an expiration check may also run on a member which took the partition over and has not scheduled it yet
+        if (leaseWheel != null && !state.isFree() && (changed || operation == Operation.EXPIRE)) {
+            leaseWheel.schedule(lockName, state.nextExpiry());
+        }
+        return result;
+    }
+
+    private AcquireResult acquire(LockState state, String lockName, LockMode mode, long now) {
+        if (drainState != null && drainState.isDraining() && !state.isHeldBy(owner)) {
+            // the member is leaving, the waiter gets the lock from the next owner of the partition
+            return AcquireResult.REJECTED;
+        }
+        boolean turn = waitQueues == null || state.isHeldBy(owner) || waitQueues.isTurn(lockName, owner, now);
+        if (turn && state.tryAcquire(owner, mode, now, leaseMillis, operation == Operation.ACQUIRE_BIASED)) {
+            if (waitQueues != null) {
+                waitQueues.remove(lockName, owner);
+            }
+            if (waitForGraph != null) {
+                waitForGraph.granted(owner);
+            }
+            return AcquireResult.GRANTED;
+        }
+        if (waitQueues != null && !waitQueues.await(lockName, owner, mode, now)) {
+            return AcquireResult.OVERLOADED;
+        }
+        if (waitForGraph != null
+                && waitForGraph.await(owner, lockName, state.getConflictingOwners(owner, mode), now)) {
+            if (waitQueues != null) {
+                waitQueues.remove(lockName, owner);
+            }
+            return AcquireResult.DEADLOCK;
+        }
+        return AcquireResult.REJECTED;
+    }
+
+    private ThreadLocal<ChangedStates> changedStates() {
+        ThreadLocal<ChangedStates> local = changedStates;
+        if (local == null) {
+            synchronized (this) {
+                if (changedStates == null) {
+                    changedStates = ThreadLocal.withInitial(ChangedStates::new);
+                }
+                local = changedStates;
+            }
+        }
+        return local;
+    }
+
+    /**
+     * The states changed by the partition operation running on a thread.
+     */
+    private static final class ChangedStates {
+        private final Map<String, LockState> states = new HashMap<>();
+        // set once the backup processor of the operation has been taken
+        private boolean collected;
+    }
+}
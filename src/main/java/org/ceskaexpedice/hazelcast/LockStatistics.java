@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects acquire and hold timings of the locks taken through {@link LockService}.
+ * <p>
+ * Wait and hold times are kept in allocation free {@link LatencyHistogram}s and counters are striped
+ * ({@link LongAdder}), so that recording does not introduce an additional point of contention on the lock path.
+ * Acquisitions which waited longer than {@value #CONTENTION_THRESHOLD_MILLIS} ms, timed out, deadlocked or were rejected by an overloaded server are also
+ * counted in a {@link ContentionTopK} of the most contended lock names. With lock striping the contention of
+ * the stripes is counted as well, see {@link StripedLockBackend}.
+ * </p>
+ *
+ * <p>
+ * The statistics are registered as an MBean by the lock service, see {@link LockStatisticsMBean}.
+ * </p>
+ */
+public class LockStatistics implements LockStatisticsMBean {
+
+    /**
+     * Acquisitions waiting longer than this are considered contended.
+     */
+    public static final long CONTENTION_THRESHOLD_MILLIS = 10;
+
+    private static final long CONTENTION_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(CONTENTION_THRESHOLD_MILLIS);
+    private static final int TOP_CONTENDED = 10;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder handoffs = new LongAdder();
+    private final LongAdder deadlocks = new LongAdder();
+    private final LongAdder overloads = new LongAdder();
+    private final LongAdder stripeContentions = new LongAdder();
+    private final LongAdder falseContentions = new LongAdder();
+    private final LatencyHistogram waitHistogram = new LatencyHistogram();
+    private final LatencyHistogram holdHistogram = new LatencyHistogram();
+    private final ContentionTopK contention = new ContentionTopK(TOP_CONTENDED * 10);
+
+    void recordAcquire(String lockName, long waitNanos) {
+        acquisitions.increment();
+        waitHistogram.record(waitNanos);
+        if (waitNanos > CONTENTION_THRESHOLD_NANOS) {
+            contention.record(lockName, waitNanos);
+        }
+    }
+
+    void recordTimeout(String lockName, long waitNanos) {
+        timeouts.increment();
+        waitHistogram.record(waitNanos);
+        contention.record(lockName, waitNanos);
+    }
+
+    void recordDeadlock(String lockName, long waitNanos) {
+        deadlocks.increment();
+        waitHistogram.record(waitNanos);
+        contention.record(lockName, waitNanos);
+    }
+
+    void recordOverload(String lockName, long waitNanos) {
+        overloads.increment();
+        waitHistogram.record(waitNanos);
+        contention.record(lockName, waitNanos);
+    }
+
+    void recordStripeContention(boolean falseContention) {
+        stripeContentions.increment();
+        if (falseContention) {
+            falseContentions.increment();
+        }
+    }
+
+    void recordHold(long holdNanos) {
+        holdHistogram.record(holdNanos);
+    }
+
+    void recordHandoff() {
+        handoffs.increment();
+    }
+
+    /**
+     * Returns the number of successfully acquired locks.
+     *
+     * @return The number of acquisitions.
+     */
+    @Override
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    /**
+     * Returns the number of acquisitions which did not succeed within the configured wait time.
+     *
+     * @return The number of timeouts.
+     */
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    /**
+     * Returns the number of acquisitions failed with a {@link DeadlockException}.
+     *
+     * @return The number of detected deadlocks.
+     */
+    @Override
+    public long getDeadlocks() {
+        return deadlocks.sum();
+    }
+
+    /**
+     * Returns the number of acquisitions failed with an {@link OverloadedException}.
+     *
+     * @return The number of acquisitions rejected by an overloaded server.
+     */
+    @Override
+    public long getOverloads() {
+        return overloads.sum();
+    }
+
+    /**
+     * Returns the number of striped acquisitions which waited longer than {@value #CONTENTION_THRESHOLD_MILLIS} ms
+     * or failed, see {@link HazelcastConfiguration#getLockStripes()}.
+     *
+     * @return The number of contended stripe acquisitions, {@code 0} without striping.
+     */
+    @Override
+    public long getStripeContentions() {
+        return stripeContentions.sum();
+    }
+
+    /**
+     * Returns the number of contended striped acquisitions whose stripe was held by this service under other names
+     * only, i.e. which waited because of the striping. Compared with {@link #getAcquisitions()} it gives the false
+     * contention rate of the configured number of stripes.
+     *
+     * @return The number of false contentions, {@code 0} without striping.
+     */
+    @Override
+    public long getFalseContentions() {
+        return falseContentions.sum();
+    }
+
+    /**
+     * Returns the number of times a lock was acquired locally without a round trip, i.e. a coalesced lock
+     * handed over between local threads or a biased lock re-entered within its grace period.
+     *
+     * @return The number of local handoffs.
+     */
+    @Override
+    public long getHandoffs() {
+        return handoffs.sum();
+    }
+
+    /**
+     * Returns the total time spent waiting for locks, including waits which ended with a timeout.
+     *
+     * @return The total wait time in nanoseconds.
+     */
+    public long getTotalWaitNanos() {
+        return waitHistogram.getSum();
+    }
+
+    /**
+     * Returns the longest single wait for a lock.
+     *
+     * @return The maximal wait time in nanoseconds.
+     */
+    public long getMaxWaitNanos() {
+        return waitHistogram.getMax();
+    }
+
+    /**
+     * Returns the total time the locks were held by the executed operations.
+     *
+     * @return The total hold time in nanoseconds.
+     */
+    public long getTotalHoldNanos() {
+        return holdHistogram.getSum();
+    }
+
+    /**
+     * Returns the longest single hold of a lock.
+     *
+     * @return The maximal hold time in nanoseconds.
+     */
+    public long getMaxHoldNanos() {
+        return holdHistogram.getMax();
+    }
+
+    /**
+     * Returns the histogram of wait times, including waits which ended with a timeout.
+     *
+     * @return The wait time histogram.
+     */
+    public LatencyHistogram getWaitHistogram() {
+        return waitHistogram;
+    }
+
+    /**
+     * Returns the histogram of hold times.
+     *
+     * @return The hold time histogram.
+     */
+    public LatencyHistogram getHoldHistogram() {
+        return holdHistogram;
+    }
+
+    @Override
+    public long getWaitP50Micros() {
+        return micros(waitHistogram.getPercentile(0.5));
+    }
+
+    @Override
+    public long getWaitP99Micros() {
+        return micros(waitHistogram.getPercentile(0.99));
+    }
+
+    @Override
+    public long getWaitP999Micros() {
+        return micros(waitHistogram.getPercentile(0.999));
+    }
+
+    @Override
+    public long getMaxWaitMicros() {
+        return micros(waitHistogram.getMax());
+    }
+
+    @Override
+    public long getHoldP50Micros() {
+        return micros(holdHistogram.getPercentile(0.5));
+    }
+
+    @Override
+    public long getHoldP99Micros() {
+        return micros(holdHistogram.getPercentile(0.99));
+    }
+
+    @Override
+    public long getMaxHoldMicros() {
+        return micros(holdHistogram.getMax());
+    }
+
+    @Override
+    public String[] getTopContendedLocks() {
+        return contention.top(TOP_CONTENDED).toArray(new String[0]);
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return "LockStatistics{" +
+                "acquisitions=" + getAcquisitions() +
+                ", timeouts=" + getTimeouts() +
+                ", deadlocks=" + getDeadlocks() +
+                ", overloads=" + getOverloads() +
+                ", handoffs=" + getHandoffs() +
+                ", stripeContentions=" + getStripeContentions() +
+                ", falseContentions=" + getFalseContentions() +
+                ", waitP50Micros=" + getWaitP50Micros() +
+                ", waitP99Micros=" + getWaitP99Micros() +
+                ", maxWaitMicros=" + getMaxWaitMicros() +
+                ", holdP50Micros=" + getHoldP50Micros() +
+                ", holdP99Micros=" + getHoldP99Micros() +
+                ", maxHoldMicros=" + getMaxHoldMicros() +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+/**
+ * JMX view of the {@link LockStatistics} of a {@link LockService}. Times are in microseconds.
+ */
+public interface LockStatisticsMBean {
+
+    long getAcquisitions();
+
+    long getTimeouts();
+
+    long getDeadlocks();
+
+    long getOverloads();
+
+    long getHandoffs();
+
+    long getStripeContentions();
+
+    long getFalseContentions();
+
+    long getWaitP50Micros();
+
+    long getWaitP99Micros();
+
+    long getWaitP999Micros();
+
+    long getMaxWaitMicros();
+
+    long getHoldP50Micros();
+
+    long getHoldP99Micros();
+
+    long getMaxHoldMicros();
+
+    /**
+     * Returns the most contended lock names as {@code name=waitNanos/count}.
+     *
+     * @return The most contended lock names, most contended first.
+     */
+    String[] getTopContendedLocks();
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Thrown when a lock could not be waited for because the server is overloaded, i.e. too many owners already wait
+ * for the lock or for all locks of the server (see {@link WaitQueues}). The acquisition fails immediately instead
+ * of waiting for the whole wait time; the caller should shed the work or retry later.
+ * <p>
+ * It extends {@link TimeoutException}, so callers handling timeouts of the lock operations
+ * handle the overload as well.
+ * </p>
+ */
+public class OverloadedException extends TimeoutException {
+
+    private static final long serialVersionUID = 1L;
+
+    public OverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import com.hazelcast.core.IMap;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the lock operations processed by the partitions of a server member.
+ * <p>
+ * The statistics are shared with the {@link LockStateProcessor}s through the user context of the member
+ * under {@link #USER_CONTEXT_KEY}. Only the primary replica records, so backups are not counted twice.
+ * Rejected acquire attempts are polled again by the waiting clients, so their count per lock name
+ * is a good measure of server side contention.
+ * </p>
+ */
+public class ServerLockStatistics implements ServerLockStatisticsMBean {
+
+    /**
+     * The key of the statistics in the user context of the Hazelcast member.
+     */
+    public static final String USER_CONTEXT_KEY = "org.ceskaexpedice.hazelcast.ServerLockStatistics";
+
+    private static final int TOP_CONTENDED = 10;
+
+    private final LongAdder grants = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder releases = new LongAdder();
+    private final LongAdder deadlocks = new LongAdder();
+    private final LongAdder overloads = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final ContentionTopK contention = new ContentionTopK(TOP_CONTENDED * 10);
+    private volatile IMap<String, LockState> lockMap;
+    private volatile WaitQueues waitQueues;
+    private volatile LeaseTimingWheel leaseWheel;
+
+    void recordGrant() {
+        grants.increment();
+    }
+
+    void recordRejection(String lockName) {
+        rejections.increment();
+        contention.record(lockName, 1);
+    }
+
+    void recordDeadlock(String lockName) {
+        deadlocks.increment();
+        contention.record(lockName, 1);
+    }
+
+    void recordOverload(String lockName) {
+        overloads.increment();
+        contention.record(lockName, 1);
+    }
+
+    void recordRelease() {
+        releases.increment();
+    }
+
+    void recordExpiry() {
+        expirations.increment();
+    }
+
+    void setLockMap(IMap<String, LockState> lockMap) {
+        this.lockMap = lockMap;
+    }
+
+    void setWaitQueues(WaitQueues waitQueues) {
+        this.waitQueues = waitQueues;
+    }
+
+    void setLeaseWheel(LeaseTimingWheel leaseWheel) {
+        this.leaseWheel = leaseWheel;
+    }
+
+    @Override
+    public long getGrants() {
+        return grants.sum();
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    @Override
+    public long getReleases() {
+        return releases.sum();
+    }
+
+    /**
+     * Returns the number of acquire attempts failed because they would deadlock, see {@link WaitForGraph}.
+     *
+     * @return The number of detected deadlocks.
+     */
+    @Override
+    public long getDeadlocks() {
+        return deadlocks.sum();
+    }
+
+    /**
+     * Returns the number of acquire attempts rejected without waiting because of the waiter limits,
+     * see {@link WaitQueues}.
+     *
+     * @return The number of rejected attempts.
+     */
+    @Override
+    public long getOverloads() {
+        return overloads.sum();
+    }
+
+    /**
+     * Returns the number of owners currently queued for locks of this member.
+     *
+     * @return The number of waiters, or {@code -1} if no waiter limit is configured.
+     */
+    @Override
+    public int getWaiters() {
+        WaitQueues queues = waitQueues;
+        return queues == null ? -1 : queues.getWaiters();
+    }
+
+    /**
+     * Returns the number of locks whose expired leases were dropped by the {@link LeaseExpiryService}, i.e. locks
+     * which were not released by a crashed or stalled owner.
+     *
+     * @return The number of expired locks.
+     */
+    @Override
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * Returns the number of lease expirations scheduled on the {@link LeaseTimingWheel} of this member.
+     *
+     * @return The number of scheduled expirations, or {@code -1} if the wheel is not running.
+     */
+    @Override
+    public int getScheduledLeases() {
+        LeaseTimingWheel wheel = leaseWheel;
+        return wheel == null ? -1 : wheel.size();
+    }
+
+    /**
+     * Returns the number of live locks owned by this member, i.e. the entries of the
+     * {@value DistributedReadWriteLock#MAP_NAME} map in its partitions. Free locks have no entry, so this counts
+     * the held locks and those with expired leases not yet dropped; it is computed locally on every call.
+     *
+     * @return The number of live locks, or {@code -1} if the member is not running.
+     */
+    @Override
+    public int getLiveLocks() {
+        IMap<String, LockState> map = lockMap;
+        return map == null ? -1 : (int) map.getLocalMapStats().getOwnedEntryCount();
+    }
+
+    @Override
+    public String[] getTopContendedLocks() {
+        return contention.top(TOP_CONTENDED).toArray(new String[0]);
+    }
+
+    @Override
+    public String toString() {
+        return "ServerLockStatistics{" +
+                "grants=" + getGrants() +
+                ", rejections=" + getRejections() +
+                ", releases=" + getReleases() +
+                ", deadlocks=" + getDeadlocks() +
+                ", overloads=" + getOverloads() +
+                ", expirations=" + getExpirations() +
+                ", waiters=" + getWaiters() +
+                ", liveLocks=" + getLiveLocks() +
+                '}';
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+/**
+ * JMX view of the {@link ServerLockStatistics} of a {@link HazelcastServerNode}.
+ */
+public interface ServerLockStatisticsMBean {
+
+    long getGrants();
+
+    long getRejections();
+
+    long getReleases();
+
+    long getDeadlocks();
+
+    long getOverloads();
+
+    long getExpirations();
+
+    int getScheduledLeases();
+
+    int getWaiters();
+
+    int getLiveLocks();
+
+    /**
+     * Returns the lock names with the most rejected acquire attempts as {@code name=rejections/count}.
+     *
+     * @return The most contended lock names, most contended first.
+     */
+    String[] getTopContendedLocks();
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock backend hashing the lock names onto a fixed number of stripes of the wrapped backend, see
+ * {@link HazelcastConfiguration#getLockStripes()}.
+ * <p>
+ * The wrapped backend only ever sees the stripe names, so the lock server holds at most one lock per stripe no
+ * matter how many names are used; two names sharing a stripe exclude each other as if they were the same name
+ * (false contention). A name is hashed by its partition key (see {@link LockNames}), so colocated names share
+ * a stripe and a hierarchy of them stays a single lock. Names locked together (see {@link DistributedMultiLock})
+ * which share a stripe are requested once, in the strongest of their modes.
+ * </p>
+ *
+ * <p>
+ * The stripe names contain the number of stripes, so services with different numbers never lock the same stripe;
+ * as they would not exclude each other either, the number is registered with the wrapped backend (see
+ * {@link LockBackend#registerStripes(int)}), which rejects services using another number, including services
+ * without striping.
+ * </p>
+ *
+ * <p>
+ * The owners are the same as with the wrapped backend, so a thread holding a name may take any other name of the same
+ * stripe. The holds are also counted per owner and name in this service, so reentrancy and releases keep their per
+ * name semantics: releasing a name which is not held by the owner fails even if the owner holds its stripe through
+ * another name.
+ * </p>
+ *
+ * <p>
+ * Blocking acquisitions which waited longer than {@value LockStatistics#CONTENTION_THRESHOLD_MILLIS} ms or failed are
+ * recorded as stripe contention in the {@link LockStatistics} of the service; those which found the stripe held by
+ * owners of this service under other names only are recorded as false contention. Holders in other JVMs are not
+ * visible to this service, their false contention counts as stripe contention only.
+ * </p>
+ */
+final class StripedLockBackend implements LockBackend {
+
+    private static final String STRIPE_PREFIX = "hazelcast-locks-stripe-";
+    private static final long CONTENTION_THRESHOLD_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(LockStatistics.CONTENTION_THRESHOLD_MILLIS);
+
+    private final LockBackend delegate;
+    private final String[] stripes;
+    private final LockStatistics statistics;
+    // hold counts per mode of every name held through this service, by owner
+    private final Map<String, Map<String, int[]>> ownerHolds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> nameHolds = new ConcurrentHashMap<>();
+    private final AtomicIntegerArray stripeHolds;
+
+    /**
+     * Creates the backend.
+     *
+     * @param delegate   The backend holding the stripes.
+     * @param stripes    The number of stripes.
+     * @param statistics The statistics recording the stripe contention.
+     */
+    StripedLockBackend(LockBackend delegate, int stripes, LockStatistics statistics) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Number of lock stripes must be positive: " + stripes);
+        }
+        this.delegate = delegate;
+        this.stripes = new String[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = STRIPE_PREFIX + stripes + "-" + i;
+        }
+        this.statistics = statistics;
+        this.stripeHolds = new AtomicIntegerArray(stripes);
+    }
+
+    @Override
+    public String getOwnerPrefix() {
+        return delegate.getOwnerPrefix();
+    }
+
+    @Override
+    public AcquireResult acquire(String owner, Map<String, LockMode> modes, long timeoutNanos)
+            throws InterruptedException {
+        boolean falseContention = isHeldUnderOtherNames(modes.keySet());
+        long start = System.nanoTime();
+        AcquireResult result = delegate.acquire(owner, stripeModes(modes), timeoutNanos);
+        if (result != AcquireResult.GRANTED || System.nanoTime() - start > CONTENTION_THRESHOLD_NANOS) {
+            statistics.recordStripeContention(falseContention);
+        }
+        if (result == AcquireResult.GRANTED) {
+            for (Map.Entry<String, LockMode> entry : modes.entrySet()) {
+                hold(owner, entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> release(String owner, Map<String, LockMode> modes) {
+        Set<String> notHeld = new HashSet<>();
+        Map<String, LockMode> held = new HashMap<>();
+        for (Map.Entry<String, LockMode> entry : modes.entrySet()) {
+            if (unhold(owner, entry.getKey(), entry.getValue())) {
+                held.put(entry.getKey(), entry.getValue());
+            } else {
+                notHeld.add(entry.getKey());
+            }
+        }
+        if (held.isEmpty()) {
+            return notHeld;
+        }
+        // the stripe holds of expired leases
+        Set<String> lost = delegate.release(owner, stripeModes(held));
+        for (String name : held.keySet()) {
+            if (lost.contains(stripe(name))) {
+                notHeld.add(name);
+            }
+        }
+        return notHeld;
+    }
+
+    @Override
+    public void cancel(String owner, Set<String> lockNames) {
+        Set<String> stripeNames = new HashSet<>();
+        for (String name : lockNames) {
+            stripeNames.add(stripe(name));
+        }
+        delegate.cancel(owner, stripeNames);
+    }
+
+    @Override
+    public CompletableFuture<AcquireResult> attemptAsync(String owner, String lockName, LockMode mode) {
+        return delegate.attemptAsync(owner, stripe(lockName), mode).thenApply(result -> {
+            if (result == AcquireResult.GRANTED) {
+                hold(owner, lockName, mode);
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> releaseAsync(String owner, String lockName, LockMode mode) {
+        if (!unhold(owner, lockName, mode)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return delegate.releaseAsync(owner, stripe(lockName), mode);
+    }
+
+    @Override
+    public Map<String, Set<String>> renew(Map<String, Set<String>> owners) {
+        Map<String, Set<String>> stripeOwners = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : owners.entrySet()) {
+            stripeOwners.computeIfAbsent(stripe(entry.getKey()), stripe -> new HashSet<>()).addAll(entry.getValue());
+        }
+        Map<String, Set<String>> lostStripes = delegate.renew(stripeOwners);
+        Map<String, Set<String>> lost = new HashMap<>();
+        if (lostStripes.isEmpty()) {
+            return lost;
+        }
+        for (Map.Entry<String, Set<String>> entry : owners.entrySet()) {
+            Set<String> lostOwners = lostStripes.get(stripe(entry.getKey()));
+            if (lostOwners == null) {
+                continue;
+            }
+            for (String owner : entry.getValue()) {
+                if (lostOwners.contains(owner)) {
+                    lost.computeIfAbsent(entry.getKey(), name -> new HashSet<>()).add(owner);
+                }
+            }
+        }
+        return lost;
+    }
+
+    @Override
+    public void registerStripes(int stripes) {
+        delegate.registerStripes(stripes);
+    }
+
+    @Override
+    public void evictIdle() {
+        delegate.evictIdle();
+    }
+
+    /**
+     * Returns the name of the stripe of the lock name.
+     */
+    String stripe(String lockName) {
+        return stripes[stripeIndex(lockName)];
+    }
+
+    private int stripeIndex(String lockName) {
+        int hash = LockNames.getPartitionKey(lockName).hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    /**
+     * Returns the modes of the stripes of the names; names sharing a stripe request the strongest of their modes.
+     */
+    private Map<String, LockMode> stripeModes(Map<String, LockMode> modes) {
+        Map<String, LockMode> stripeModes = new TreeMap<>();
+        for (Map.Entry<String, LockMode> entry : modes.entrySet()) {
+            stripeModes.merge(stripe(entry.getKey()), entry.getValue(), StripedLockBackend::strongest);
+        }
+        return stripeModes;
+    }
+
+    /**
+     * Returns the weakest mode excluding everything either of the modes excludes, see the table of {@link LockMode}.
+     */
+    static LockMode strongest(LockMode first, LockMode second) {
+        if (first == second || second == LockMode.INTENTION_SHARED) {
+            return first;
+        }
+        if (first == LockMode.INTENTION_SHARED) {
+            return second;
+        }
+        return LockMode.EXCLUSIVE;
+    }
+
+    /**
+     * Tests whether any of the names is not held through this service while its stripe is, i.e. whether waiting
+     * for the names would be a false contention.
+     */
+    private boolean isHeldUnderOtherNames(Collection<String> lockNames) {
+        for (String name : lockNames) {
+            int held = nameHolds.getOrDefault(name, 0);
+            if (held == 0 && stripeHolds.get(stripeIndex(name)) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void hold(String owner, String lockName, LockMode mode) {
+        ownerHolds.compute(owner, (o, names) -> {
+            Map<String, int[]> holds = names == null ? new HashMap<>(4) : names;
+            holds.computeIfAbsent(lockName, name -> new int[LockMode.values().length])[mode.ordinal()]++;
+            return holds;
+        });
+        nameHolds.merge(lockName, 1, Integer::sum);
+        stripeHolds.incrementAndGet(stripeIndex(lockName));
+    }
+
+    /**
+     * Drops one hold of the name by the owner.
+     *
+     * @return {@code false} if the owner did not hold the name in the mode.
+     */
+    private boolean unhold(String owner, String lockName, LockMode mode) {
+        boolean[] held = new boolean[1];
+        ownerHolds.computeIfPresent(owner, (o, holds) -> {
+            int[] counts = holds.get(lockName);
+            if (counts != null && counts[mode.ordinal()] > 0) {
+                held[0] = true;
+                counts[mode.ordinal()]--;
+                if (isEmpty(counts)) {
+                    holds.remove(lockName);
+                }
+            }
+            return holds.isEmpty() ? null : holds;
+        });
+        if (held[0]) {
+            nameHolds.computeIfPresent(lockName, (name, count) -> count == 1 ? null : count - 1);
+            stripeHolds.decrementAndGet(stripeIndex(lockName));
+        }
+        return held[0];
+    }
+
+    private static boolean isEmpty(int[] counts) {
+        for (int count : counts) {
+            if (count > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Lock backend tracking the names held by the threads of a lock service, so that a thread may re-enter a name it
+ * uses through an exclusive hold of the service itself.
+ * <p>
+ * The {@link LocalLockCoalescer} hands its distributed lock over between local threads and the
+ * {@link BiasedLockRetainer} keeps it between their operations, so the lock is held by an owner of the service
+ * rather than by a thread; a thread which used it before must not be let in by the server as its holder, and
+ * the thread using it must not wait for it. While a thread uses such a hold, the service {@link #cover covers} the name for the thread:
+ * the acquisitions of the thread's own owner (see {@link DistributedReadWriteLock#threadOwner(String)}) skip
+ * the covered names, which the exclusive hold already grants, and the matching releases skip them as well. Other
+ * threads and other owners are passed to the wrapped backend unchanged, so they wait for the hold of the service
+ * as for any other owner.
+ * </p>
+ *
+ * <p>
+ * Conversely a thread holding a name under its own owner must not ask for the hold of the service, which would wait
+ * for the thread itself; {@link #isHeldByCurrentThread(String)} tells the service to take the name under the owner
+ * of the thread instead.
+ * </p>
+ */
+final class ThreadHoldsLockBackend implements LockBackend {
+
+    private final LockBackend delegate;
+    private final ThreadLocal<Map<String, Holds>> threadHolds = ThreadLocal.withInitial(HashMap::new);
+
+    ThreadHoldsLockBackend(LockBackend delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Marks the name as held by the calling thread through an exclusive hold of the service.
+     *
+     * @param lockName The name of the lock.
+     */
+    void cover(String lockName) {
+        threadHolds.get().computeIfAbsent(lockName, name -> new Holds()).covering++;
+    }
+
+    /**
+     * Ends one {@link #cover(String)} of the name by the calling thread.
+     *
+     * @param lockName The name of the lock.
+     */
+    void uncover(String lockName) {
+        Map<String, Holds> holds = threadHolds.get();
+        Holds nameHolds = holds.get(lockName);
+        if (nameHolds != null) {
+            nameHolds.covering--;
+            removeIfEmpty(holds, lockName, nameHolds);
+        }
+    }
+
+    /**
+     * Tests whether the calling thread holds the name under its own owner.
+     *
+     * @param lockName The name of the lock.
+     * @return {@code true} if the thread holds the lock in any mode.
+     */
+    boolean isHeldByCurrentThread(String lockName) {
+        Holds nameHolds = threadHolds.get().get(lockName);
+        return nameHolds != null && nameHolds.owned > 0;
+    }
+
+    /**
+     * Returns the names which the calling thread does not hold through a hold of the service.
+     *
+     * @param lockNames The names of the locks.
+     * @return The names not covered for the thread.
+     */
+    Collection<String> uncovered(Collection<String> lockNames) {
+        Map<String, Holds> holds = threadHolds.get();
+        if (holds.isEmpty()) {
+            return lockNames;
+        }
+        Collection<String> uncovered = new ArrayList<>(lockNames.size());
+        for (String lockName : lockNames) {
+            Holds nameHolds = holds.get(lockName);
+            if (nameHolds == null || nameHolds.covering == 0) {
+                uncovered.add(lockName);
+            }
+        }
+        return uncovered;
+    }
+
+    @Override
+    public String getOwnerPrefix() {
+        return delegate.getOwnerPrefix();
+    }
+
+    @Override
+    public AcquireResult acquire(String owner, Map<String, LockMode> modes, long timeoutNanos)
+            throws InterruptedException {
+        if (!isCurrentThread(owner)) {
+            return delegate.acquire(owner, modes, timeoutNanos);
+        }
+        Map<String, Holds> holds = threadHolds.get();
+        Map<String, LockMode> requested = modes;
+        for (String lockName : modes.keySet()) {
+            Holds nameHolds = holds.get(lockName);
+            if (nameHolds != null && nameHolds.covering > 0) {
+                if (requested == modes) {
+                    requested = new TreeMap<>(modes);
+                }
+                requested.remove(lockName);
+            }
+        }
+        AcquireResult result = requested.isEmpty()
+                ? AcquireResult.GRANTED
+                : delegate.acquire(owner, requested, timeoutNanos);
+        if (result == AcquireResult.GRANTED) {
+            for (String lockName : modes.keySet()) {
+                Holds nameHolds = holds.computeIfAbsent(lockName, name -> new Holds());
+                if (requested.containsKey(lockName)) {
+                    nameHolds.owned++;
+                } else {
+                    nameHolds.covered++;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> release(String owner, Map<String, LockMode> modes) {
+        if (!isCurrentThread(owner)) {
+            return delegate.release(owner, modes);
+        }
+        Map<String, Holds> holds = threadHolds.get();
+        Map<String, LockMode> released = new TreeMap<>();
+        for (Map.Entry<String, LockMode> entry : modes.entrySet()) {
+            Holds nameHolds = holds.get(entry.getKey());
+            if (nameHolds != null && nameHolds.covered > 0) {
+                // taken while the name was covered, nothing to release on the server
+                nameHolds.covered--;
+            } else {
+                if (nameHolds != null && nameHolds.owned > 0) {
+                    nameHolds.owned--;
+                }
+                released.put(entry.getKey(), entry.getValue());
+            }
+            if (nameHolds != null) {
+                removeIfEmpty(holds, entry.getKey(), nameHolds);
+            }
+        }
+        return released.isEmpty() ? Collections.emptySet() : delegate.release(owner, released);
+    }
+
+    @Override
+    public void cancel(String owner, Set<String> lockNames) {
+        delegate.cancel(owner, lockNames);
+    }
+
+    @Override
+    public CompletableFuture<AcquireResult> attemptAsync(String owner, String lockName, LockMode mode) {
+        return delegate.attemptAsync(owner, lockName, mode);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> releaseAsync(String owner, String lockName, LockMode mode) {
+        return delegate.releaseAsync(owner, lockName, mode);
+    }
+
+    @Override
+    public Map<String, Set<String>> renew(Map<String, Set<String>> owners) {
+        return delegate.renew(owners);
+    }
+
+    @Override
+    public void registerStripes(int stripes) {
+        delegate.registerStripes(stripes);
+    }
+
+    @Override
+    public void evictIdle() {
+        delegate.evictIdle();
+    }
+
+    private boolean isCurrentThread(String owner) {
+        return owner.equals(DistributedReadWriteLock.threadOwner(delegate.getOwnerPrefix()));
+    }
+
+    private static void removeIfEmpty(Map<String, Holds> holds, String lockName, Holds nameHolds) {
+        if (nameHolds.owned == 0 && nameHolds.covered == 0 && nameHolds.covering == 0) {
+            holds.remove(lockName);
+        }
+    }
+
+    /**
+     * Holds of a single name by a single thread.
+     */
+    private static final class Holds {
+        // holds under the owner of the thread
+        private int owned;
+        // holds taken while the name was covered
+        private int covered;
+        // holds of the service used by the thread
+        private int covering;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Wait-for graph of the owners waiting for locks of the {@link DistributedReadWriteLock} namespace on a member.
+ * <p>
+ * Every rejected acquire attempt records an edge from the waiting owner to the owners holding the lock in
+ * a conflicting mode and checks whether the new edge closes a cycle; if so, the waiting owner is the victim and
+ * its attempt fails with {@link AcquireResult#DEADLOCK}. Waiters poll, so a wait which has not been refreshed by
+ * another attempt for {@value #STALE_MILLIS} ms is considered abandoned. Grants, releases and cancelled waits update
+ * the graph right away, so that a released lock or a wait given up is not mistaken for a wait.
+ * </p>
+ *
+ * <p>
+ * The graph is local to the member and covers the locks of its partitions. On a single member all deadlocks are
+ * detected; on a cluster, cycles through locks owned by different members still end with a timeout.
+ * </p>
+ *
+ * <p>
+ * The graph is shared with the {@link LockStateProcessor}s through the user context of the member under
+ * {@link #USER_CONTEXT_KEY}. It is only changed on rejections, grants and releases of contended locks, so a
+ * single monitor is cheap enough.
+ * </p>
+ */
+public class WaitForGraph {
+
+    /**
+     * The key of the graph in the user context of the Hazelcast member.
+     */
+    public static final String USER_CONTEXT_KEY = "org.ceskaexpedice.hazelcast.WaitForGraph";
+
+    static final long STALE_MILLIS = 1000;
+
+    private final Map<String, Wait> waits = new HashMap<>();
+    private final Map<String, Set<String>> waitersByLock = new HashMap<>();
+    private long purgedAt;
+    // lets grants and releases of uncontended locks skip the monitor
+    private volatile boolean hasWaits;
+
+    /**
+     * Records that the owner waits for the lock held by the given owners.
+     *
+     * @param owner    The waiting owner.
+     * @param lockName The name of the lock.
+     * @param holders  The owners holding the lock in a conflicting mode.
+     * @param now      Current time in milliseconds.
+     * @return {@code true} if the wait closes a cycle; the wait is not recorded then.
+     */
+    synchronized boolean await(String owner, String lockName, Set<String> holders, long now) {
+        if (now - purgedAt > STALE_MILLIS) {
+            purge(now);
+        }
+        remove(owner);
+        if (closesCycle(owner, holders, now)) {
+            return true;
+        }
+        waits.put(owner, new Wait(lockName, holders, now));
+        waitersByLock.computeIfAbsent(lockName, name -> new HashSet<>()).add(owner);
+        hasWaits = true;
+        return false;
+    }
+
+    /**
+     * Records that the owner got a lock, i.e. does not wait anymore.
+     */
+    void granted(String owner) {
+        if (!hasWaits) {
+            return;
+        }
+        synchronized (this) {
+            remove(owner);
+        }
+    }
+
+    /**
+     * Records that the owner gave up waiting for the lock, e.g. because its wait time elapsed.
+     */
+    void cancelled(String owner, String lockName) {
+        if (!hasWaits) {
+            return;
+        }
+        synchronized (this) {
+            Wait wait = waits.get(owner);
+            if (wait != null && wait.lockName.equals(lockName)) {
+                remove(owner);
+            }
+        }
+    }
+
+    /**
+     * Records that the owner does not hold the lock anymore.
+     */
+    void released(String owner, String lockName) {
+        if (!hasWaits) {
+            return;
+        }
+        synchronized (this) {
+            Set<String> waiters = waitersByLock.get(lockName);
+            if (waiters != null) {
+                for (String waiter : waiters) {
+                    waits.get(waiter).holders.remove(owner);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of recorded waits, including the stale ones.
+     */
+    synchronized int size() {
+        return waits.size();
+    }
+
+    private boolean closesCycle(String owner, Set<String> holders, long now) {
+        Set<String> visited = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(holders);
+        while (!pending.isEmpty()) {
+            String current = pending.pop();
+            if (current.equals(owner)) {
+                return true;
+            }
+            if (visited.add(current)) {
+                Wait wait = waits.get(current);
+                if (wait != null && now - wait.seenAt <= STALE_MILLIS) {
+                    pending.addAll(wait.holders);
+                }
+            }
+        }
+        return false;
+    }
+
+    private void remove(String owner) {
+        Wait wait = waits.remove(owner);
+        if (wait != null) {
+            Set<String> waiters = waitersByLock.get(wait.lockName);
+            waiters.remove(owner);
+            if (waiters.isEmpty()) {
+                waitersByLock.remove(wait.lockName);
+            }
+        }
+        hasWaits = !waits.isEmpty();
+    }
+
+    private void purge(long now) {
+        purgedAt = now;
+        Iterator<Map.Entry<String, Wait>> it = waits.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Wait> entry = it.next();
+            if (now - entry.getValue().seenAt > STALE_MILLIS) {
+                it.remove();
+                Set<String> waiters = waitersByLock.get(entry.getValue().lockName);
+                waiters.remove(entry.getKey());
+                if (waiters.isEmpty()) {
+                    waitersByLock.remove(entry.getValue().lockName);
+                }
+            }
+        }
+        hasWaits = !waits.isEmpty();
+    }
+
+    private static final class Wait {
+        private final String lockName;
+        private final Set<String> holders;
+        private final long seenAt;
+
+        private Wait(String lockName, Set<String> holders, long seenAt) {
+            this.lockName = lockName;
+            this.holders = new HashSet<>(holders);
+            this.seenAt = seenAt;
+        }
+    }
+}
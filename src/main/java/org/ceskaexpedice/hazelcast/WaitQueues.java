@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded FIFO queues of the owners waiting for locks of the {@link DistributedReadWriteLock} namespace on a member.
+ * <p>
+ * An owner whose acquire attempt was rejected is admitted to the queue of the lock only if the queue is shorter than
+ * the per lock limit and the number of all waiters of the member is below the global budget; otherwise the attempt
+ * fails with {@link AcquireResult#OVERLOADED} and the client gives up immediately instead of polling for the whole
+ * wait time. While a lock has admitted waiters, it is granted in their order: only the waiters at the head of the
+ * queue whose modes are compatible with each other (a single writer, or a run of readers and intention modes) or an
+ * owner already holding the lock (e.g. for a reentrant acquisition or an upgrade) may acquire it, so queued readers
+ * are admitted together rather than one per poll.
+ * </p>
+ *
+ * <p>
+ * A waiter which gives up withdraws from the queue right away (see {@link LockStateProcessor#cancel(String)}).
+ * Waiters poll, so a waiter which has not repeated its attempt for {@value WaitForGraph#STALE_MILLIS} ms (it
+ * crashed or its withdrawal got lost) is dropped from the queue and does not hold up the ones behind it.
+ * </p>
+ *
+ * <p>
+ * The queues are shared with the {@link LockStateProcessor}s through the user context of the member under
+ * {@link #USER_CONTEXT_KEY}; they are only used when a limit is configured on the server node.
+ * </p>
+ */
+public class WaitQueues {
+
+    /**
+     * The key of the queues in the user context of the Hazelcast member.
+     */
+    public static final String USER_CONTEXT_KEY = "org.ceskaexpedice.hazelcast.WaitQueues";
+
+    private final int maxWaitersPerLock;
+    private final int maxWaiters;
+    private final Map<String, LinkedHashMap<String, Waiter>> queues = new HashMap<>();
+    private int waiters;
+    private long purgedAt;
+    // lets acquisitions of uncontended locks skip the monitor
+    private volatile boolean hasWaiters;
+
+    /**
+     * Creates the queues.
+     *
+     * @param maxWaitersPerLock The maximal number of waiters of a single lock, {@code 0} for no limit.
+     * @param maxWaiters        The maximal number of waiters of all locks, {@code 0} for no limit.
+     */
+    public WaitQueues(int maxWaitersPerLock, int maxWaiters) {
+        this.maxWaitersPerLock = maxWaitersPerLock;
+        this.maxWaiters = maxWaiters;
+    }
+
+    /**
+     * Tests whether it is the turn of the owner to acquire the lock, i.e. nobody waits for it or the owner
+     * is one of the waiters at the head of the queue whose modes are compatible with each other.
+     */
+    boolean isTurn(String lockName, String owner, long now) {
+        if (!hasWaiters) {
+            return true;
+        }
+        synchronized (this) {
+            LinkedHashMap<String, Waiter> queue = queues.get(lockName);
+            if (queue == null) {
+                return true;
+            }
+            // the modes of the run of compatible waiters at the head
+            EnumSet<LockMode> run = EnumSet.noneOf(LockMode.class);
+            Iterator<Map.Entry<String, Waiter>> it = queue.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Waiter> waiter = it.next();
+                if (now - waiter.getValue().seenAt > WaitForGraph.STALE_MILLIS) {
+                    it.remove();
+                    waiters--;
+                    continue;
+                }
+                LockMode mode = waiter.getValue().mode;
+                for (LockMode queued : run) {
+                    if (!mode.isCompatibleWith(queued)) {
+                        return false;
+                    }
+                }
+                if (waiter.getKey().equals(owner)) {
+                    return true;
+                }
+                run.add(mode);
+            }
+            if (queue.isEmpty()) {
+                queues.remove(lockName);
+                hasWaiters = waiters > 0;
+                return true;
+            }
+            // the owner is not queued, it waits behind the run
+            return false;
+        }
+    }
+
+    /**
+     * Admits the owner to the queue of the lock, or refreshes its wait if it is already queued.
+     *
+     * @return {@code false} if the owner was not admitted because a limit was reached.
+     */
+    synchronized boolean await(String lockName, String owner, LockMode mode, long now) {
+        if (now - purgedAt > WaitForGraph.STALE_MILLIS) {
+            purge(now);
+        }
+        LinkedHashMap<String, Waiter> queue = queues.get(lockName);
+        Waiter waiter = queue == null ? null : queue.get(owner);
+        if (waiter != null) {
+            // keeps the position in the queue
+            waiter.mode = mode;
+            waiter.seenAt = now;
+            return true;
+        }
+        if ((maxWaitersPerLock > 0 && queue != null && queue.size() >= maxWaitersPerLock)
+                || (maxWaiters > 0 && waiters >= maxWaiters)) {
+            return false;
+        }
+        queues.computeIfAbsent(lockName, name -> new LinkedHashMap<>()).put(owner, new Waiter(mode, now));
+        waiters++;
+        hasWaiters = true;
+        return true;
+    }
+
+    /**
+     * Removes the owner from the queue of the lock, e.g. when it got the lock or gave up.
+     *
+     * @return {@code true} if the owner was queued.
+     */
+    boolean remove(String lockName, String owner) {
+        if (!hasWaiters) {
+            return false;
+        }
+        synchronized (this) {
+            LinkedHashMap<String, Waiter> queue = queues.get(lockName);
+            if (queue == null || queue.remove(owner) == null) {
+                return false;
+            }
+            waiters--;
+            if (queue.isEmpty()) {
+                queues.remove(lockName);
+            }
+            hasWaiters = waiters > 0;
+            return true;
+        }
+    }
+
+    /**
+     * Returns the number of admitted waiters of all locks, including the stale ones.
+     *
+     * @return The number of waiters.
+     */
+    public synchronized int getWaiters() {
+        return waiters;
+    }
+
+    private void purge(long now) {
+        purgedAt = now;
+        Iterator<LinkedHashMap<String, Waiter>> queueIt = queues.values().iterator();
+        while (queueIt.hasNext()) {
+            LinkedHashMap<String, Waiter> queue = queueIt.next();
+            Iterator<Waiter> it = queue.values().iterator();
+            while (it.hasNext()) {
+                if (now - it.next().seenAt > WaitForGraph.STALE_MILLIS) {
+                    it.remove();
+                    waiters--;
+                }
+            }
+            if (queue.isEmpty()) {
+                queueIt.remove();
+            }
+        }
+        hasWaiters = waiters > 0;
+    }
+
+    private static final class Waiter {
+        private LockMode mode;
+        private long seenAt;
+
+        private Waiter(LockMode mode, long seenAt) {
+            this.mode = mode;
+            this.seenAt = seenAt;
+        }
+    }
+}
@@ -2,15 +2,33 @@ package org.ceskaexpedice.hazelcast;
 
 import com.hazelcast.client.HazelcastClient;
 import com.hazelcast.client.config.ClientConfig;
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.ILock;
+import com.hazelcast.core.IMap;
+import com.hazelcast.core.PartitionService;
+import com.hazelcast.map.EntryBackupProcessor;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -18,10 +36,16 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class HazelcastLocksTest {
+    // the backend the lock services are tested with, see the testInProcess task
+    private static final LockBackendType BACKEND = LockBackendType.valueOf(
+            System.getProperty("lockBackend", LockBackendType.HAZELCAST.name()));
+
     private static HazelcastClientNode hazelcastClientNode;
     private static HazelcastConfiguration hazelcastConfig;
+    private static LockService lockService;
 
     @BeforeAll
     static void beforeAll() {
@@ -30,30 +54,34 @@ class HazelcastLocksTest {
 
         hazelcastClientNode = new HazelcastClientNode();
         ensureHazelcastClientNode(hazelcastConfig);
+        lockService = new LockService(hazelcastClientNode, hazelcastConfig);
     }
 
     @AfterAll
     static void afterAll() {
+        lockService.shutdown();
         hazelcastClientNode.shutdown();
         HazelcastServerNode.shutdown();
     }
 
     @Test
     void testSimpleLock() throws TimeoutException {
-        String result = doWithLock("pid1", hazelcastConfig, hazelcastClientNode, new LockOperation<String>() {
+        long acquisitions = lockService.getStatistics().getAcquisitions();
+        String result = lockService.doWithLock("pid1", new LockOperation<String>() {
             @Override
             public String execute() {
                 return "pepo";
             }
         });
         assertEquals("pepo", result);
+        assertTrue(lockService.getStatistics().getAcquisitions() > acquisitions);
     }
 
     @Test
     void testReentrant() throws TimeoutException {
         String pid = "L1";
-        Boolean result = doWithLock(pid, hazelcastConfig, hazelcastClientNode, () -> {
-            Boolean result1 = doWithLock(pid, hazelcastConfig, hazelcastClientNode, () -> true);
+        Boolean result = lockService.doWithLock(pid, () -> {
+            Boolean result1 = lockService.doWithLock(pid, () -> true);
             return result1;
         });
         assertTrue(result);
@@ -68,7 +96,7 @@ class HazelcastLocksTest {
 
         Thread t1 = new Thread(() -> {
             try {
-                doWithLock("pid1", hazelcastConfig, hazelcastClientNode, () -> {
+                lockService.doWithLock("pid1", () -> {
                     System.out.println("T1 acquired lock");
                     t1Acquired.countDown();
                     sleep(5000); // hold lock
@@ -86,7 +114,7 @@ class HazelcastLocksTest {
                 t1Acquired.await();
                 System.out.println("T2 trying lock");
                 try {
-                    doWithLock("pid1", hazelcastConfig, hazelcastClientNode, () -> {
+                    lockService.doWithLock("pid1", () -> {
                         t2EnterTime.set(System.currentTimeMillis());
                         System.out.println("T2 acquired lock");
                         t2Entered.countDown();
@@ -111,8 +139,705 @@ class HazelcastLocksTest {
         assertTrue(t2EnterTime.get() >= t1ReleaseTime.get(), "T2 must acquire lock only AFTER T1 released it");
     }
 
+    @Test
+    void testSharedReadLocks() throws Exception {
+        int readers = 4;
+        CountDownLatch allInside = new CountDownLatch(readers);
+        AtomicBoolean overlapped = new AtomicBoolean(false);
+        Thread[] threads = new Thread[readers];
+        for (int i = 0; i < readers; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    lockService.doWithReadLock("pidRead", () -> {
+                        allInside.countDown();
+                        try {
+                            // all readers must be able to hold the lock at the same time
+                            overlapped.set(allInside.await(10, TimeUnit.SECONDS));
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return null;
+                    });
+                } catch (TimeoutException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(overlapped.get(), "Readers of the same lock must not serialize");
+    }
+
+    @Test
+    void testWriteLockExcludesReaders() throws Exception {
+        CountDownLatch writerAcquired = new CountDownLatch(1);
+        AtomicLong writerReleaseTime = new AtomicLong();
+        AtomicLong readerEnterTime = new AtomicLong();
+
+        Thread writer = new Thread(() -> {
+            try {
+                lockService.doWithWriteLock("pidWrite", () -> {
+                    writerAcquired.countDown();
+                    sleep(2000);
+                    writerReleaseTime.set(System.currentTimeMillis());
+                    return null;
+                });
+            } catch (TimeoutException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+        writerAcquired.await();
+        lockService.doWithReadLock("pidWrite", () -> {
+            readerEnterTime.set(System.currentTimeMillis());
+            return null;
+        });
+        writer.join();
+        assertTrue(readerEnterTime.get() >= writerReleaseTime.get(), "Reader must wait for the writer");
+    }
+
+    @Test
+    void testUpgradeAndDowngrade() throws Exception {
+        DistributedReadWriteLock lock = lockService.getReadWriteLock("pidUpgrade");
+        assertTrue(lock.tryReadLock(1, TimeUnit.SECONDS));
+        // sole reader may upgrade
+        assertTrue(lock.tryWriteLock(1, TimeUnit.SECONDS));
+        // downgrade: take read while holding write, then release write
+        assertTrue(lock.tryReadLock(1, TimeUnit.SECONDS));
+        lock.unlockWrite();
+
+        AtomicBoolean otherReader = new AtomicBoolean(false);
+        AtomicBoolean otherWriter = new AtomicBoolean(true);
+        Thread other = new Thread(() -> {
+            try {
+                otherReader.set(lock.tryReadLock(1, TimeUnit.SECONDS));
+                lock.unlockRead();
+                otherWriter.set(lock.tryWriteLock(500, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        other.start();
+        other.join();
+        lock.unlockRead();
+        lock.unlockRead();
+
+        assertTrue(otherReader.get(), "Downgraded lock must admit other readers");
+        assertFalse(otherWriter.get(), "Downgraded lock must still exclude writers");
+    }
+
+    @Test
+    void testCoalescedLock() throws Exception {
+        assumeTrue(BACKEND == LockBackendType.HAZELCAST, "Coalescing applies to the Hazelcast locks only");
+        HazelcastConfiguration config = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasync")
+                .hazelcastUser("dev")
+                .waitTimeSecs(60L)
+                .leaseTimeSecs(60L)
+                .lockCoalescing(true)
+                .lockHandoffLimit(8)
+                .build();
+        LockService coalescingService = new LockService(hazelcastClientNode, config);
+        int threads = 8;
+        int iterations = 50;
+        int[] counter = new int[1];
+        AtomicBoolean overlap = new AtomicBoolean(false);
+        AtomicBoolean inside = new AtomicBoolean(false);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                for (int j = 0; j < iterations; j++) {
+                    try {
+                        coalescingService.doWithLock("pidCoalesced", () -> {
+                            if (!inside.compareAndSet(false, true)) {
+                                overlap.set(true);
+                            }
+                            counter[0]++;
+                            inside.set(false);
+                            return null;
+                        });
+                    } catch (TimeoutException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        coalescingService.shutdown();
+        assertFalse(overlap.get(), "Coalesced lock must stay mutually exclusive");
+        assertEquals(threads * iterations, counter[0]);
+        assertTrue(coalescingService.getStatistics().getHandoffs() > 0, "Contending local threads should hand the lock over");
+        // the distributed lock must be released once everybody is done
+        assertFalse(hazelcastClientNode.getHzInstance().getMap(DistributedReadWriteLock.MAP_NAME).containsKey("pidCoalesced"));
+    }
+
+    @Test
+    void testCoalescedLockHandoff() throws Exception {
+        assumeTrue(BACKEND == LockBackendType.HAZELCAST, "Coalescing applies to the Hazelcast locks only");
+        HazelcastConfiguration config = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasync")
+                .hazelcastUser("dev")
+                .waitTimeSecs(1L)
+                .leaseTimeSecs(60L)
+                .lockCoalescing(true)
+                .build();
+        LockService coalescingService = new LockService(hazelcastClientNode, config);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        CompletableFuture<Boolean> nested = new CompletableFuture<>();
+        Thread next = new Thread(() -> {
+            try {
+                coalescingService.doWithLock("pidHandoff", () -> {
+                    nested.complete(coalescingService.doWithReadLock("pidHandoff",
+                            () -> coalescingService.doWithLocks(Arrays.asList("pidHandoff", "pidHandoffOther"), () -> true)));
+                    running.countDown();
+                    try {
+                        return finish.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                });
+            } catch (Exception e) {
+                nested.completeExceptionally(e);
+                running.countDown();
+            }
+        });
+        coalescingService.doWithLock("pidHandoff", () -> {
+            next.start();
+            // the next thread queues for the local lock, so that it is handed over
+            while (next.getState() != Thread.State.TIMED_WAITING) {
+                Thread.yield();
+            }
+            return null;
+        });
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        assertTrue(nested.get(), "The thread using the coalesced lock must re-enter the name");
+        assertEquals(1, coalescingService.getStatistics().getHandoffs());
+        assertThrows(TimeoutException.class, () -> coalescingService.doWithReadLock("pidHandoff", () -> true),
+                "The thread which handed the lock over must not be let in while the next thread runs");
+        finish.countDown();
+        next.join();
+        assertTrue(coalescingService.doWithReadLock("pidHandoff", () -> true));
+        coalescingService.shutdown();
+    }
+
+    @Test
+    void testLockAllOppositeOrder() throws Exception {
+        List<String> monographFirst = Arrays.asList("PID_MONOGRAPH_ALL", "PID_TITLE_PAGE_ALL", "PID_PAGE_ALL");
+        List<String> pageFirst = Arrays.asList("PID_PAGE_ALL", "PID_TITLE_PAGE_ALL", "PID_MONOGRAPH_ALL");
+        int iterations = 20;
+        AtomicBoolean failed = new AtomicBoolean(false);
+        Thread t1 = new Thread(() -> lockAllRepeatedly(monographFirst, iterations, failed), "LockAll-T1");
+        Thread t2 = new Thread(() -> lockAllRepeatedly(pageFirst, iterations, failed), "LockAll-T2");
+        long start = System.currentTimeMillis();
+        t1.start();
+        t2.start();
+        t1.join();
+        t2.join();
+        assertFalse(failed.get(), "Opposite ordering must neither deadlock nor time out");
+        assertTrue(System.currentTimeMillis() - start < 60000);
+
+        // all or nothing: a held name blocks the whole set
+        try (LockHandle handle = lockService.lockAll(pageFirst)) {
+            assertEquals(3, handle.getLockNames().size());
+            AtomicBoolean otherAcquired = new AtomicBoolean(true);
+            Thread other = new Thread(() -> otherAcquired.set(tryReadLock("PID_PAGE_ALL")));
+            other.start();
+            other.join();
+            assertFalse(otherAcquired.get());
+        }
+        assertTrue(tryReadLock("PID_PAGE_ALL"));
+        lockService.getReadWriteLock("PID_PAGE_ALL").unlockRead();
+    }
+
+    private static void lockAllRepeatedly(List<String> names, int iterations, AtomicBoolean failed) {
+        for (int i = 0; i < iterations; i++) {
+            try {
+                lockService.doWithLocks(names, () -> {
+                    sleep(5);
+                    return null;
+                });
+            } catch (TimeoutException e) {
+                failed.set(true);
+            }
+        }
+    }
+
+    private static boolean tryReadLock(String name) {
+        try {
+            return lockService.getReadWriteLock(name).tryReadLock(200, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Test
+    void testHierarchicalLocks() throws Exception {
+        LockHandle monograph = lockService.lockHierarchy(List.of("pidMono1"), LockMode.EXCLUSIVE);
+        try {
+            assertFalse(CompletableFuture.supplyAsync(() -> tryHierarchy(List.of("pidMono1", "pidMono1Page1"), LockMode.SHARED)).get(),
+                    "Page readers must wait for the monograph writer");
+            assertTrue(CompletableFuture.supplyAsync(() -> tryHierarchy(List.of("pidMono2", "pidMono2Page1"), LockMode.EXCLUSIVE)).get(),
+                    "Other monographs must not be blocked");
+        } finally {
+            monograph.release();
+        }
+
+        lockService.doWithHierarchicalLock(List.of("pidMono1", "pidMono1Page1"), LockMode.EXCLUSIVE, () -> {
+            assertTrue(CompletableFuture.supplyAsync(() -> tryHierarchy(List.of("pidMono1", "pidMono1Page2"), LockMode.EXCLUSIVE)).join(),
+                    "Writers of different pages must not exclude each other");
+            assertFalse(CompletableFuture.supplyAsync(() -> tryHierarchy(List.of("pidMono1"), LockMode.SHARED)).join(),
+                    "Monograph readers must wait for page writers");
+            return null;
+        });
+    }
+
+    private static boolean tryHierarchy(List<String> path, LockMode mode) {
+        DistributedMultiLock lock = new DistributedMultiLock(DistributedMultiLock.hierarchy(path, mode),
+                lockService.getBackend());
+        try {
+            if (!lock.tryLock(200, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            lock.unlock();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Test
+    void testColocatedLocks() throws Exception {
+        String monograph = LockNames.colocated("pidMono3", "pidMono3");
+        String page = LockNames.colocated("pidMono3Page1", "pidMono3");
+        assertEquals("pidMono3", LockNames.getPartitionKey(page));
+        assertEquals("pidMono4", LockNames.getPartitionKey("pidMono4"));
+        assertThrows(IllegalArgumentException.class, () -> LockNames.colocated(page, "pidMono4"));
+        if (BACKEND == LockBackendType.HAZELCAST) {
+            PartitionService partitions = hazelcastClientNode.getHzInstance().getPartitionService();
+            assertEquals(partitions.getPartition(monograph).getPartitionId(), partitions.getPartition(page).getPartitionId(),
+                    "Names with the same partition key must share the partition");
+        }
+
+        lockService.doWithHierarchicalLock(List.of(monograph, page), LockMode.EXCLUSIVE, () -> {
+            assertFalse(CompletableFuture.supplyAsync(() -> tryHierarchy(List.of(monograph), LockMode.SHARED)).join(),
+                    "Monograph readers must wait for page writers");
+            assertTrue(CompletableFuture.supplyAsync(() -> tryHierarchy(List.of("pidMono3Page1"), LockMode.EXCLUSIVE)).join(),
+                    "The partition key is part of the lock name");
+            return null;
+        });
+    }
+
+    @Test
+    void testLockStriping() throws Exception {
+        // the services of the other tests lock without striping
+        HazelcastConfiguration config = separateCluster("stripe-test")
+                .waitTimeSecs(1L)
+                .lockStripes(1)
+                .lockBackend(BACKEND)
+                .build();
+        HazelcastInstance member = BACKEND == LockBackendType.HAZELCAST
+                ? Hazelcast.newHazelcastInstance(HazelcastServerNode.createMemberConfig(config)
+                .setInstanceName("stripe-test-member"))
+                : null;
+        try {
+            assertStriping(new LockService(member, config));
+            assertThrows(IllegalStateException.class,
+                    () -> new LockService(member, separateCluster("stripe-test").lockStripes(2).lockBackend(BACKEND).build()),
+                    "Services with another number of stripes would not exclude the striped services");
+            assertThrows(IllegalStateException.class,
+                    () -> new LockService(member, separateCluster("stripe-test").lockBackend(BACKEND).build()),
+                    "Services without striping would not exclude the striped services");
+        } finally {
+            if (member != null) {
+                member.shutdown();
+            }
+        }
+    }
+
+    private static void assertStriping(LockService stripedService) throws Exception {
+        stripedService.doWithWriteLock("pidStriped1", () -> {
+            assertTrue(stripedService.doWithWriteLock("pidStriped2",
+                    () -> stripedService.doWithReadLock("pidStriped1", () -> true)),
+                    "Names must stay reentrant and must not block names of the same stripe held by the thread");
+            assertThrows(IllegalMonitorStateException.class,
+                    () -> stripedService.getReadWriteLock("pidStriped3").unlockWrite(),
+                    "A name must not be released through the hold of another name of its stripe");
+            assertFalse(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return stripedService.doWithWriteLock("pidStriped3", () -> true);
+                } catch (TimeoutException e) {
+                    return false;
+                }
+            }).join(), "Names sharing a stripe must exclude each other");
+            return null;
+        });
+        assertTrue(stripedService.getStatistics().getFalseContentions() > 0);
+        assertTrue(stripedService.doWithWriteLock("pidStriped3", () -> true));
+        stripedService.shutdown();
+    }
+
+    @Test
+    void testEmbeddedMember() throws Exception {
+        assumeTrue(BACKEND == LockBackendType.HAZELCAST, "The test embeds a Hazelcast member");
+        LockService embeddedService = new LockService(HazelcastServerNode.getHzInstance(), hazelcastConfig);
+        embeddedService.doWithWriteLock("pidEmbedded", () -> {
+            assertFalse(CompletableFuture.supplyAsync(() -> tryReadLock("pidEmbedded")).join(),
+                    "A lock held through the member must exclude the clients");
+            return null;
+        });
+        DistributedReadWriteLock lock = lockService.getReadWriteLock("pidEmbedded");
+        assertTrue(lock.tryReadLock(1, TimeUnit.SECONDS), "The member must release the lock for the clients");
+        lock.unlockRead();
+        embeddedService.shutdown();
+    }
+
+    @Test
+    void testAsyncAcquire() throws Exception {
+        LockHandle first = lockService.acquireAsync("pidAsync").get(10, TimeUnit.SECONDS);
+        CompletableFuture<LockHandle> second = lockService.acquireAsync("pidAsync");
+        Thread.sleep(500);
+        assertFalse(second.isDone(), "Second handle must wait for the first one");
+
+        // the handle owns the lock, any thread may release it
+        Thread releaser = new Thread(first::release);
+        releaser.start();
+        releaser.join();
+
+        LockHandle secondHandle = second.get(10, TimeUnit.SECONDS);
+        assertEquals(Collections.singleton("pidAsync"), secondHandle.getLockNames());
+        secondHandle.release();
+        assertThrows(IllegalMonitorStateException.class, secondHandle::release);
+    }
+
+    @Test
+    void testBoundedLockCache() throws Exception {
+        HazelcastConfiguration config = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasync")
+                .hazelcastUser("dev")
+                .lockCacheSize(100)
+                .lockBackend(BACKEND)
+                .build();
+        LockService boundedService = new LockService(hazelcastClientNode, config);
+        for (int i = 0; i < 1000; i++) {
+            boundedService.doWithLock("pidCache" + i, () -> null);
+        }
+        boundedService.shutdown();
+        assertTrue(boundedService.getCachedLockCount() <= 100, "Lock proxy cache must stay bounded");
+    }
+
+    @Test
+    void testLiveLockCount() throws Exception {
+        assumeTrue(BACKEND == LockBackendType.HAZELCAST, "Only the Hazelcast locks live on the server");
+        PartitionService partitions = HazelcastServerNode.getHzInstance().getPartitionService();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            names.add("pidLive" + i);
+        }
+        long local = names.stream().filter(name -> partitions.getPartition(name).getOwner().localMember()).count();
+        int before = HazelcastServerNode.getLiveLockCount();
+        try (LockHandle handle = lockService.lockAll(names)) {
+            assertEquals(before + local, HazelcastServerNode.getLiveLockCount());
+        }
+        assertEquals(before, HazelcastServerNode.getLiveLockCount(), "Released locks must not stay live");
+    }
+
+    @Test
+    void testContentionStatistics() throws Exception {
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try {
+                lockService.doWithWriteLock("pidHot", () -> {
+                    held.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                });
+            } catch (TimeoutException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        holder.start();
+        held.await();
+        CompletableFuture.delayedExecutor(200, TimeUnit.MILLISECONDS).execute(release::countDown);
+        lockService.doWithWriteLock("pidHot", () -> null);
+        holder.join();
+
+        LockStatistics statistics = lockService.getStatistics();
+        assertTrue(statistics.getMaxWaitMicros() >= TimeUnit.MILLISECONDS.toMicros(100));
+        assertTrue(statistics.getWaitP50Micros() <= statistics.getMaxWaitMicros());
+        assertTrue(Arrays.stream(statistics.getTopContendedLocks()).anyMatch(entry -> entry.startsWith("pidHot=")));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertFalse(server.queryNames(new ObjectName(JmxSupport.DOMAIN + ":type=LockService,*"), null).isEmpty());
+        assertFalse(server.queryNames(new ObjectName(JmxSupport.DOMAIN + ":type=LockServer,*"), null).isEmpty());
+        if (BACKEND == LockBackendType.HAZELCAST) {
+            assertTrue(HazelcastServerNode.getStatistics().getGrants() > 0);
+        }
+    }
+
+    @Test
+    void testReadWriteLeaseExpiration() throws Exception {
+        HazelcastConfiguration config = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasync")
+                .hazelcastUser("dev")
+                .leaseTimeSecs(1L)
+                .lockBackend(BACKEND)
+                .build();
+        LockService shortLeaseService = new LockService(hazelcastClientNode, config);
+        // the holder never releases the lock
+        assertTrue(shortLeaseService.getReadWriteLock("pidRwLease").tryWriteLock(1, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+        assertTrue(CompletableFuture.supplyAsync(() -> {
+            DistributedReadWriteLock lock = lockService.getReadWriteLock("pidRwLease");
+            try {
+                if (!lock.tryWriteLock(5, TimeUnit.SECONDS)) {
+                    return false;
+                }
+                lock.unlockWrite();
+                return true;
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }).get(), "The lock must be granted once the lease of the holder expired");
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(500));
+        assertThrows(IllegalMonitorStateException.class, () -> shortLeaseService.getReadWriteLock("pidRwLease").unlockWrite(),
+                "The expired hold must not be released");
+        shortLeaseService.shutdown();
+    }
+
+    @Test
+    void testBackupCarriesOwnPartitionOnly() throws Exception {
+        // executeOnKeys shares one processor instance among the partition threads of a member
+        LockStateProcessor processor = LockStateProcessor.acquire("owner", LockMode.EXCLUSIVE, 60000);
+        ExecutorService partitionThreadA = Executors.newSingleThreadExecutor();
+        ExecutorService partitionThreadB = Executors.newSingleThreadExecutor();
+        try {
+            partitionThreadA.submit(() -> processor.process(new AbstractMap.SimpleEntry<>("pidA", null))).get();
+            partitionThreadB.submit(() -> processor.process(new AbstractMap.SimpleEntry<>("pidB", null))).get();
+            EntryBackupProcessor<String, LockState> backupA = partitionThreadA.submit(processor::getBackupProcessor).get();
+            assertTrue(isBackedUp(backupA, "pidA"));
+            assertFalse(isBackedUp(backupA, "pidB"), "The backup of a partition must not carry other partitions");
+
+            // the next partition processed by the thread starts afresh
+            partitionThreadA.submit(() -> processor.process(new AbstractMap.SimpleEntry<>("pidC", null))).get();
+            EntryBackupProcessor<String, LockState> backupC = partitionThreadA.submit(processor::getBackupProcessor).get();
+            assertTrue(isBackedUp(backupC, "pidC"));
+            assertFalse(isBackedUp(backupC, "pidA"), "Changes of a finished partition operation must be dropped");
+            assertTrue(isBackedUp(partitionThreadB.submit(processor::getBackupProcessor).get(), "pidB"));
+        } finally {
+            partitionThreadA.shutdown();
+            partitionThreadB.shutdown();
+        }
+    }
+
+    private static boolean isBackedUp(EntryBackupProcessor<String, LockState> backup, String lockName) {
+        Map.Entry<String, LockState> entry = new AbstractMap.SimpleEntry<>(lockName, null);
+        backup.processBackup(entry);
+        return entry.getValue() != null;
+    }
+
+    @Test
+    void testLeaseTimingWheel() throws Exception {
+        assumeTrue(BACKEND == LockBackendType.HAZELCAST, "The timing wheel runs on the Hazelcast members");
+        HazelcastConfiguration config = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasync")
+                .hazelcastUser("dev")
+                .leaseTimeSecs(1L)
+                .lockBackend(BACKEND)
+                .build();
+        LockService shortLeaseService = new LockService(hazelcastClientNode, config);
+        long expirations = HazelcastServerNode.getStatistics().getExpirations();
+        // the holder never releases the lock and nobody asks for it again
+        assertTrue(shortLeaseService.getReadWriteLock("pidRwWheel").tryWriteLock(1, TimeUnit.SECONDS));
+        IMap<String, LockState> map = hazelcastClientNode.getHzInstance().getMap(DistributedReadWriteLock.MAP_NAME);
+        assertTrue(map.containsKey("pidRwWheel"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (map.containsKey("pidRwWheel") && System.currentTimeMillis() < deadline) {
+            sleep(100);
+        }
+        assertFalse(map.containsKey("pidRwWheel"), "The expired lock must be removed by the lease expiry service");
+        assertTrue(HazelcastServerNode.getStatistics().getExpirations() > expirations);
+        shortLeaseService.shutdown();
+    }
+
+    @Test
+    void testLeaseTimingWheelBuckets() {
+        LeaseTimingWheel wheel = new LeaseTimingWheel(10, 4);
+        wheel.advance(1000);
+        for (int i = 0; i < 100; i++) {
+            // all in one bucket, half of them a round later
+            wheel.schedule("pidWheel" + i, i % 2 == 0 ? 1015 : 1055);
+        }
+        wheel.schedule("pidWheel0", 1015);
+        assertEquals(101, wheel.size());
+        List<String> due = wheel.advance(1025);
+        assertEquals(51, due.size(), "A lock scheduled twice must fire twice");
+        assertTrue(due.contains("pidWheel98"));
+        assertFalse(due.contains("pidWheel1"), "A deadline of a later round must be kept");
+        assertEquals(50, wheel.size());
+        assertEquals(50, wheel.advance(1065).size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testLeaseExpiryAfterOwnerCrash() throws InterruptedException {
+        assumeTrue(BACKEND == LockBackendType.HAZELCAST, "The timing wheel runs on the Hazelcast members");
+        HazelcastConfiguration crashConfig = separateCluster("crash-test").leaseTimeSecs(1L).build();
+        // the surviving member is the master, so that it removes the crashed member right away
+        HazelcastInstance survivor = Hazelcast.newHazelcastInstance(HazelcastServerNode.createMemberConfig(crashConfig)
+                .setInstanceName("crash-test-survivor"));
+        HazelcastInstance crashing = Hazelcast.newHazelcastInstance(HazelcastServerNode.createMemberConfig(crashConfig)
+                .setInstanceName("crash-test-crashing"));
+        LockService crashingLocks = new LockService(crashing, crashConfig);
+        try {
+            survivor.getMap(DistributedReadWriteLock.MAP_NAME).size();
+            while (!survivor.getPartitionService().isClusterSafe()) {
+                sleep(100);
+            }
+            String lockName = null;
+            for (int i = 0; lockName == null; i++) {
+                if (crashing.getPartitionService().getPartition("pidCrashed" + i).getOwner().localMember()) {
+                    lockName = "pidCrashed" + i;
+                }
+            }
+            // the holder crashes with the owner of the lock, only the backup of the survivor knows the lock
+            assertTrue(crashingLocks.getReadWriteLock(lockName).tryWriteLock(1, TimeUnit.SECONDS));
+            crashing.getLifecycleService().terminate();
+
+            IMap<String, LockState> map = survivor.getMap(DistributedReadWriteLock.MAP_NAME);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (map.containsKey(lockName) && System.currentTimeMillis() < deadline) {
+                sleep(100);
+            }
+            assertFalse(map.containsKey(lockName), "The member promoted to the owner must expire the lease");
+        } finally {
+            crashingLocks.shutdown();
+            crashing.getLifecycleService().terminate();
+            survivor.shutdown();
+        }
+    }
+
+    @Test
+    void testLeaseRenewal() throws Exception {
+        HazelcastConfiguration config = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasync")
+                .hazelcastUser("dev")
+                .leaseTimeSecs(1L)
+                .leaseRenewal(true)
+                .lockBackend(BACKEND)
+                .build();
+        LockService renewingService = new LockService(hazelcastClientNode, config);
+        // a writer and two readers, the holds of all three owners are renewed together
+        CountDownLatch held = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        LockOperation<Void> hold = () -> {
+            held.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        };
+        Thread[] holders = {
+                new Thread(() -> assertDoesNotThrow(() -> renewingService.doWithLock("pidRenew", hold))),
+                new Thread(() -> assertDoesNotThrow(() -> renewingService.doWithReadLock("pidRenewShared", hold))),
+                new Thread(() -> assertDoesNotThrow(() -> renewingService.doWithReadLock("pidRenewShared", hold)))
+        };
+        for (Thread holder : holders) {
+            holder.start();
+        }
+        held.await();
+        Thread.sleep(3000);
+        DistributedReadWriteLock lock = renewingService.getReadWriteLock("pidRenew");
+        DistributedReadWriteLock shared = renewingService.getReadWriteLock("pidRenewShared");
+        assertFalse(lock.tryWriteLock(100, TimeUnit.MILLISECONDS), "Lease of a running operation must be renewed");
+        assertFalse(shared.tryWriteLock(100, TimeUnit.MILLISECONDS), "Leases of all readers must be renewed");
+        release.countDown();
+        for (Thread holder : holders) {
+            holder.join();
+        }
+        assertTrue(lock.tryWriteLock(1, TimeUnit.SECONDS));
+        lock.unlockWrite();
+        assertTrue(shared.tryWriteLock(1, TimeUnit.SECONDS));
+        shared.unlockWrite();
+        renewingService.shutdown();
+    }
+
+    @Test
+    void testBiasedLocking() throws Exception {
+        assumeTrue(BACKEND == LockBackendType.HAZELCAST, "Biased locking applies to the Hazelcast locks only");
+        HazelcastConfiguration config = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasync")
+                .hazelcastUser("dev")
+                .biasedLocking(true)
+                .biasedLockGraceMillis(10000L)
+                .build();
+        LockService biasedService = new LockService(hazelcastClientNode, config);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("ok", biasedService.doWithLock("pidBiased", () -> biasedService.doWithLock("pidBiased", () -> "ok")));
+        }
+        assertTrue(biasedService.getStatistics().getHandoffs() >= 99, "Repeated acquisitions should re-enter locally");
+
+        // another owner revokes the retained lock long before the grace period ends
+        DistributedReadWriteLock contender = lockService.getReadWriteLock("pidBiased");
+        long start = System.nanoTime();
+        assertTrue(contender.tryWriteLock(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        contender.unlockWrite();
+        biasedService.shutdown();
+    }
+
+    @Test
+    void testBiasedLockNested() throws Exception {
+        assumeTrue(BACKEND == LockBackendType.HAZELCAST, "Biased locking applies to the Hazelcast locks only");
+        HazelcastConfiguration config = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasync")
+                .hazelcastUser("dev")
+                .waitTimeSecs(1L)
+                .biasedLocking(true)
+                .biasedLockGraceMillis(10000L)
+                .build();
+        LockService biasedService = new LockService(hazelcastClientNode, config);
+        try {
+            assertTrue(biasedService.doWithLock("pidBiasedNested", () -> {
+                // the other lock paths of the thread re-enter the biased lock instead of waiting for the retainer
+                assertTrue(biasedService.doWithReadLock("pidBiasedNested", () -> true));
+                assertTrue(biasedService.doWithWriteLock("pidBiasedNested", () -> true));
+                assertTrue(biasedService.doWithLocks(Arrays.asList("pidBiasedNested", "pidBiasedNestedOther"),
+                        () -> true));
+                assertTrue(biasedService.doWithHierarchicalLock(Arrays.asList("pidBiasedNested", "pidBiasedNestedPage"),
+                        LockMode.EXCLUSIVE, () -> true));
+                assertFalse(CompletableFuture.supplyAsync(() -> tryReadLock("pidBiasedNested")).join(),
+                        "Other threads must still wait for the biased lock");
+                return true;
+            }));
+            // a thread holding the name itself takes it as a plain write lock
+            assertTrue(biasedService.doWithReadLock("pidBiasedNested",
+                    () -> biasedService.doWithLock("pidBiasedNested", () -> true)));
+        } finally {
+            biasedService.shutdown();
+        }
+        assertTrue(tryReadLock("pidBiasedNested"));
+        lockService.getReadWriteLock("pidBiasedNested").unlockRead();
+    }
+
     @Test
     void testLeaseExpiration() throws Exception {
+        assumeTrue(BACKEND == LockBackendType.HAZELCAST, "The test uses a separate Hazelcast client");
         HazelcastConfiguration config = new HazelcastConfiguration.Builder()
                 .hazelcastInstance("akubrasyncX")
                 .hazelcastUser("dev")
@@ -121,6 +846,7 @@ class HazelcastLocksTest {
                 .build();
         HazelcastClientNode node = new HazelcastClientNode();
         node.ensureHazelcastNode(config);
+        LockService nodeLockService = new LockService(node, config);
 
         CountDownLatch t1Acquired = new CountDownLatch(1);
         CountDownLatch t2Finished = new CountDownLatch(1);
@@ -128,13 +854,8 @@ class HazelcastLocksTest {
 
         Thread t1 = new Thread(() -> {
             try {
-                ILock lock = hazelcastClientNode.getHzInstance().getLock("pidLease");
-                boolean ok = lock.tryLock(
-                        config.getWaitTimeSecs(),
-                        TimeUnit.SECONDS,
-                        config.getLeaseTimeSecs(),
-                        TimeUnit.SECONDS
-                );
+                DistributedReadWriteLock lock = nodeLockService.getReadWriteLock("pidLease");
+                boolean ok = lock.tryWriteLock(config.getWaitTimeSecs(), TimeUnit.SECONDS);
                 if (!ok) {
                     throw new RuntimeException("T1 failed to acquire lock");
                 }
@@ -155,7 +876,7 @@ class HazelcastLocksTest {
                 // Wait until lease should be expired
                 sleep((int) ((config.getLeaseTimeSecs() + 2) * 1000L));
                 System.out.println("T2 trying via doWithLock after lease expiry");
-                doWithLock("pidLease", config, node, () -> {
+                nodeLockService.doWithLock("pidLease", () -> {
                     System.out.println("T2 acquired lock after lease expiry");
                     t2Success.set(true);
                     return null;
@@ -171,6 +892,7 @@ class HazelcastLocksTest {
         t2Finished.await();
         t1.join();
         t2.join();
+        nodeLockService.shutdown();
         node.shutdown();
 
         assertTrue(t2Success.get(), "T2 must acquire lock after lease expiration");
@@ -183,6 +905,7 @@ class HazelcastLocksTest {
     @ParameterizedTest
     @MethodSource("leaseUnits")
     public void testLeaseExpirationRaw(TimeUnit leaseUnit) throws Exception {
+        assumeTrue(BACKEND == LockBackendType.HAZELCAST, "The test uses Hazelcast clients only");
         // =========================
         // First client
         // =========================
@@ -232,9 +955,11 @@ class HazelcastLocksTest {
                 .hazelcastInstance("akubrasyncX")
                 .hazelcastUser("dev")
                 .waitTimeSecs(10L)
+                .lockBackend(BACKEND)
                 .build();
         HazelcastClientNode node = new HazelcastClientNode();
         node.ensureHazelcastNode(config);
+        LockService nodeLockService = new LockService(node, config);
 
         AtomicBoolean t1Timeout = new AtomicBoolean(false);
         AtomicBoolean t2Timeout = new AtomicBoolean(false);
@@ -244,14 +969,14 @@ class HazelcastLocksTest {
 
         Thread t1 = new Thread(() -> {
             try {
-                doWithLock("PID_MONOGRAPH", config, node, () -> {
+                nodeLockService.doWithLock("PID_MONOGRAPH", () -> {
                     System.out.println(Thread.currentThread().getName() + ": acquired lock for " + "PID_MONOGRAPH");
                     t1HasWriteLock.countDown();
                     try {
                         // Wait until T2 also holds its write lock → guarantees deadlock scenario
                         t2HasWriteLock.await();
                         System.out.println(Thread.currentThread().getName() + ": attempting lock for " + "PID_TITLE_PAGE");
-                        doWithLock("PID_TITLE_PAGE", config, node, () -> null);
+                        nodeLockService.doWithLock("PID_TITLE_PAGE", () -> null);
                     } catch (TimeoutException e) {
                             t1Timeout.set(true);
                     } catch (InterruptedException e) {
@@ -266,14 +991,14 @@ class HazelcastLocksTest {
 
         Thread t2 = new Thread(() -> {
             try {
-                doWithLock("PID_TITLE_PAGE", config, node, () -> {
+                nodeLockService.doWithLock("PID_TITLE_PAGE", () -> {
                     System.out.println(Thread.currentThread().getName() + ": acquired lock for " + "PID_TITLE_PAGE");
                     t2HasWriteLock.countDown();
                     try {
                         // Wait until T1 holds write lock → guarantees circular wait
                         t1HasWriteLock.await();
                         System.out.println(Thread.currentThread().getName() + ": attempting lock for " + "PID_MONOGRAPH");
-                        doWithLock("PID_MONOGRAPH", config, node, () -> null);
+                        nodeLockService.doWithLock("PID_MONOGRAPH", () -> null);
                     } catch (TimeoutException e) {
                             t2Timeout.set(true);
                     } catch (InterruptedException e) {
@@ -299,35 +1024,388 @@ class HazelcastLocksTest {
                 t1Timeout.get() || t2Timeout.get(),
                 "At least one thread must detect lock timeout to break deadlock"
         );
+        nodeLockService.shutdown();
         node.shutdown();
     }
 
-    // Example helper; replace with your actual implementation
-    private <T> T doWithLock(String lockName, HazelcastConfiguration config, HazelcastClientNode node,
-                             LockOperation<T> operation) throws TimeoutException {
+    @Test
+    void testDeadlockDetection() throws Exception {
+        CountDownLatch bothHeld = new CountDownLatch(2);
+        AtomicLong deadlocks = new AtomicLong();
+        Thread t1 = new Thread(() -> lockInOrder("PID_MONOGRAPH_RW", "PID_TITLE_PAGE_RW", bothHeld, deadlocks));
+        Thread t2 = new Thread(() -> lockInOrder("PID_TITLE_PAGE_RW", "PID_MONOGRAPH_RW", bothHeld, deadlocks));
+        long start = System.nanoTime();
+        t1.start();
+        t2.start();
+        t1.join();
+        t2.join();
+
+        assertTrue(deadlocks.get() >= 1, "The circular wait must be detected");
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10),
+                "The deadlock must be resolved long before the wait time of 120 s");
+    }
+
+    @Test
+    void testAbandonedWaitIsNotDeadlock() throws Exception {
+        CountDownLatch secondHeld = new CountDownLatch(1);
+        CountDownLatch gaveUp = new CountDownLatch(1);
+        AtomicBoolean deadlock = new AtomicBoolean();
+        Thread t1 = new Thread(() -> {
+            try {
+                secondHeld.await();
+                lockService.doWithWriteLock("pidAbandonFirst", () -> {
+                    DistributedReadWriteLock second = lockService.getReadWriteLock("pidAbandonSecond");
+                    try {
+                        if (second.tryWriteLock(100, TimeUnit.MILLISECONDS)) {
+                            second.unlockWrite();
+                        }
+                        gaveUp.countDown();
+                        // keeps the first lock a little longer, the other thread has to wait for it
+                        Thread.sleep(300);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (TimeoutException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread t2 = new Thread(() -> {
+            try {
+                lockService.doWithWriteLock("pidAbandonSecond", () -> {
+                    secondHeld.countDown();
+                    try {
+                        gaveUp.await();
+                        // the other thread waited for this lock, but gave up; waiting for its lock is no cycle
+                        lockService.doWithWriteLock("pidAbandonFirst", () -> null);
+                    } catch (DeadlockException e) {
+                        deadlock.set(true);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                });
+            } catch (TimeoutException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        t1.start();
+        t2.start();
+        t1.join();
+        t2.join();
+
+        assertFalse(deadlock.get(), "A wait which was given up must not close a cycle");
+    }
+
+    @Test
+    void testDeadlockDetectionDisabled() throws Exception {
+        HazelcastConfiguration config = separateCluster("detection-test")
+                .waitTimeSecs(1L)
+                .deadlockDetection(false)
+                .lockBackend(BACKEND)
+                .build();
+        HazelcastInstance member = BACKEND == LockBackendType.HAZELCAST
+                ? Hazelcast.newHazelcastInstance(HazelcastServerNode.createMemberConfig(config)
+                .setInstanceName("detection-test-member"))
+                : null;
+        LockService detectionService = new LockService(member, config);
         try {
-            var lock = node.getHzInstance().getLock(lockName);
-            if (lock.tryLock(config.getWaitTimeSecs(), TimeUnit.SECONDS, config.getLeaseTimeSecs(), TimeUnit.HOURS)) {
+            CountDownLatch bothHeld = new CountDownLatch(2);
+            AtomicLong deadlocks = new AtomicLong();
+            AtomicLong timeouts = new AtomicLong();
+            Thread t1 = new Thread(() -> lockInOrder(detectionService, "pidCycleFirst", "pidCycleSecond",
+                    bothHeld, deadlocks, timeouts));
+            Thread t2 = new Thread(() -> lockInOrder(detectionService, "pidCycleSecond", "pidCycleFirst",
+                    bothHeld, deadlocks, timeouts));
+            t1.start();
+            t2.start();
+            t1.join();
+            t2.join();
+
+            assertEquals(0, deadlocks.get(), "Deadlocks must not be detected with the detection disabled");
+            assertTrue(timeouts.get() >= 1, "The circular wait must end with a timeout");
+        } finally {
+            detectionService.shutdown();
+            if (member != null) {
+                member.shutdown();
+            }
+        }
+    }
+
+    private static void lockInOrder(LockService service, String first, String second, CountDownLatch bothHeld,
+                                    AtomicLong deadlocks, AtomicLong timeouts) {
+        try {
+            service.doWithWriteLock(first, () -> {
+                bothHeld.countDown();
                 try {
-                    return operation.execute();
-                } finally {
-                    lock.unlock();
+                    bothHeld.await();
+                    service.doWithWriteLock(second, () -> null);
+                } catch (DeadlockException e) {
+                    deadlocks.incrementAndGet();
+                } catch (TimeoutException e) {
+                    timeouts.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
                 }
-            } else {
-                throw new TimeoutException("Could not acquire lock " + lockName + " within " + config.getWaitTimeSecs()
-                        + " " + TimeUnit.SECONDS);
-            }
-        } catch (InterruptedException e) {
+                return null;
+            });
+        } catch (TimeoutException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private static void lockInOrder(String first, String second, CountDownLatch bothHeld, AtomicLong deadlocks) {
+        try {
+            lockService.doWithWriteLock(first, () -> {
+                bothHeld.countDown();
+                try {
+                    bothHeld.await();
+                    lockService.doWithWriteLock(second, () -> null);
+                } catch (DeadlockException e) {
+                    deadlocks.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            });
+        } catch (TimeoutException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void testSharedClient() {
+        HazelcastConfiguration config = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasyncShared")
+                .hazelcastUser("dev")
+                .build();
+        HazelcastClientNode node1 = new HazelcastClientNode();
+        HazelcastClientNode node2 = new HazelcastClientNode();
+        node1.ensureHazelcastNode(config);
+        node2.ensureHazelcastNode(config);
+        HazelcastInstance client = node1.getHzInstance();
+        assertSame(client, node2.getHzInstance(), "Nodes with the same configuration must share the client");
+        assertEquals(2, HazelcastClientRegistry.getReferences(client));
+
+        node1.shutdown();
+        assertTrue(client.getLifecycleService().isRunning(), "The client must outlive the first release");
+        node2.shutdown();
+        assertFalse(client.getLifecycleService().isRunning(), "The last release must shut the client down");
+    }
+
+    @Test
+    void testSharedClientConflictingSettings() {
+        HazelcastConfiguration config = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasyncConflict")
+                .hazelcastUser("dev")
+                .build();
+        HazelcastConfiguration conflicting = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasyncConflict")
+                .hazelcastUser("dev")
+                .clientHeartbeatIntervalMillis(1000L)
+                .build();
+        HazelcastClientNode node1 = new HazelcastClientNode();
+        HazelcastClientNode node2 = new HazelcastClientNode();
+        node1.ensureHazelcastNode(config);
+        try {
+            assertThrows(IllegalStateException.class, () -> node2.ensureHazelcastNode(conflicting),
+                    "A client must not be shared by configurations with different settings");
+            assertEquals(1, HazelcastClientRegistry.getReferences(node1.getHzInstance()));
+        } finally {
+            node1.shutdown();
+        }
+    }
+
+    @Test
+    void testDrainLastMember() throws InterruptedException {
+        assumeTrue(BACKEND == LockBackendType.HAZELCAST, "Draining is a feature of the lock server");
+        HazelcastConfiguration drainConfig = separateCluster("drain-test").build();
+        Config config = HazelcastServerNode.createMemberConfig(drainConfig);
+        config.setInstanceName("drain-test-last");
+        DrainState state = (DrainState) config.getUserContext().get(DrainState.USER_CONTEXT_KEY);
+        HazelcastInstance member = Hazelcast.newHazelcastInstance(config);
+        Config liteConfig = HazelcastServerNode.createMemberConfig(drainConfig).setLiteMember(true);
+        HazelcastInstance lite = Hazelcast.newHazelcastInstance(liteConfig.setInstanceName("drain-test-lite"));
+        LockService memberLocks = new LockService(member, drainConfig);
+        try {
+            assertTrue(HazelcastServerNode.isLastDataMember(member), "Lite members must not count as data members");
+            DistributedReadWriteLock held = memberLocks.getReadWriteLock("pidDrainHeld");
+            assertTrue(held.tryWriteLock(1, TimeUnit.SECONDS));
+
+            assertEquals(1, HazelcastServerNode.drain(member, state, System.currentTimeMillis() + 300),
+                    "The drain must wait for the holder until the deadline");
+            assertTrue(state.isDraining());
+            assertFalse(memberLocks.getReadWriteLock("pidDrainNew").tryWriteLock(300, TimeUnit.MILLISECONDS),
+                    "The last member must not admit new holders while draining");
+            assertTrue(held.tryWriteLock(300, TimeUnit.MILLISECONDS), "A holder may re-enter while draining");
+            held.unlockWrite();
+
+            held.unlockWrite();
+            assertEquals(0, HazelcastServerNode.drain(member, state, System.currentTimeMillis() + 5000));
+        } finally {
+            memberLocks.shutdown();
+            lite.shutdown();
+            member.shutdown();
+        }
+    }
+
+    @Test
+    void testNoDrainWithRemainingMembers() throws InterruptedException {
+        assumeTrue(BACKEND == LockBackendType.HAZELCAST, "Draining is a feature of the lock server");
+        HazelcastConfiguration drainConfig = separateCluster("drain-test").build();
+        Config config = HazelcastServerNode.createMemberConfig(drainConfig);
+        config.setInstanceName("drain-test-leaving");
+        DrainState state = (DrainState) config.getUserContext().get(DrainState.USER_CONTEXT_KEY);
+        // the remaining member is the master, so that it sees the other member leave right away
+        HazelcastInstance remaining = Hazelcast.newHazelcastInstance(HazelcastServerNode.createMemberConfig(drainConfig)
+                .setInstanceName("drain-test-remaining"));
+        HazelcastInstance leaving = Hazelcast.newHazelcastInstance(config);
+        LockService leavingLocks = new LockService(leaving, drainConfig);
+        try {
+            assertFalse(HazelcastServerNode.isLastDataMember(leaving));
+
+            // assigns the partitions and waits for their migration to the new member
+            remaining.getMap(DistributedReadWriteLock.MAP_NAME).size();
+            while (!leaving.getPartitionService().isClusterSafe()) {
+                sleep(100);
+            }
+            String lockName = null;
+            for (int i = 0; lockName == null; i++) {
+                if (leaving.getPartitionService().getPartition("pidDrainMigrated" + i).getOwner().localMember()) {
+                    lockName = "pidDrainMigrated" + i;
+                }
+            }
+            assertTrue(leavingLocks.getReadWriteLock(lockName).tryWriteLock(1, TimeUnit.SECONDS));
+            long start = System.currentTimeMillis();
+            assertEquals(0, HazelcastServerNode.drain(leaving, state, start + 5000));
+            assertTrue(System.currentTimeMillis() - start < 1000, "A member with successors must not wait for holders");
+            assertFalse(state.isDraining(), "A member with successors must keep admitting holders");
+
+            leavingLocks.shutdown();
+            leaving.shutdown();
+            IMap<String, LockState> locks = remaining.getMap(DistributedReadWriteLock.MAP_NAME);
+            assertTrue(locks.containsKey(lockName), "The held lock must migrate to the remaining member");
+        } finally {
+            leavingLocks.shutdown();
+            leaving.shutdown();
+            remaining.shutdown();
+        }
+    }
+
+    private static HazelcastConfiguration.Builder separateCluster(String group) {
+        // the members do not join the cluster of the other tests
+        return new HazelcastConfiguration.Builder()
+                .hazelcastInstance(group)
+                .hazelcastUser(group)
+                .addHazelcastServer("127.0.0.1");
+    }
+
+    @Test
+    void testWaitQueues() {
+        WaitQueues queues = new WaitQueues(2, 3);
+        long now = 0;
+        assertTrue(queues.isTurn("A", "o1", now), "Anybody may acquire a lock nobody waits for");
+        assertTrue(queues.await("A", "o1", LockMode.EXCLUSIVE, now));
+        assertTrue(queues.await("A", "o2", LockMode.EXCLUSIVE, now));
+        assertFalse(queues.await("A", "o3", LockMode.EXCLUSIVE, now), "The per lock limit must be enforced");
+        assertTrue(queues.await("B", "o3", LockMode.EXCLUSIVE, now));
+        assertFalse(queues.await("C", "o4", LockMode.EXCLUSIVE, now), "The global budget must be enforced");
+        assertTrue(queues.await("A", "o1", LockMode.EXCLUSIVE, now), "An admitted waiter must keep its place");
+        assertEquals(3, queues.getWaiters());
+
+        assertTrue(queues.isTurn("A", "o1", now));
+        assertFalse(queues.isTurn("A", "o2", now), "Admitted waiters must get the lock in FIFO order");
+        assertTrue(queues.remove("A", "o1"));
+        assertFalse(queues.remove("A", "o1"));
+        assertTrue(queues.isTurn("A", "o2", now));
+
+        now += WaitForGraph.STALE_MILLIS + 1;
+        assertTrue(queues.await("A", "o5", LockMode.EXCLUSIVE, now));
+        assertTrue(queues.isTurn("A", "o5", now), "Waiters which stopped polling must be dropped");
+        assertEquals(1, queues.getWaiters());
+    }
+
+    @Test
+    void testWaitQueuesAdmitCompatibleWaiters() {
+        WaitQueues queues = new WaitQueues(10, 0);
+        long now = 0;
+        queues.await("A", "r1", LockMode.SHARED, now);
+        queues.await("A", "i1", LockMode.INTENTION_SHARED, now);
+        queues.await("A", "r2", LockMode.SHARED, now);
+        queues.await("A", "w1", LockMode.EXCLUSIVE, now);
+        queues.await("A", "r3", LockMode.SHARED, now);
+        assertTrue(queues.isTurn("A", "r1", now));
+        assertTrue(queues.isTurn("A", "i1", now));
+        assertTrue(queues.isTurn("A", "r2", now), "Readers at the head must be admitted together");
+        assertFalse(queues.isTurn("A", "w1", now), "A writer must wait for the readers before it");
+        assertFalse(queues.isTurn("A", "r3", now), "Readers behind a writer must wait for it");
+        assertFalse(queues.isTurn("A", "new", now), "Owners which are not queued must wait behind the queue");
+        queues.remove("A", "r1");
+        queues.remove("A", "i1");
+        queues.remove("A", "r2");
+        assertTrue(queues.isTurn("A", "w1", now));
+        assertFalse(queues.isTurn("A", "r3", now));
+    }
+
+    @Test
+    void testCancelledWaiterLeavesQueue() throws Exception {
+        HazelcastConfiguration config = separateCluster("queue-test")
+                .waitTimeSecs(1L)
+                .lockMaxWaiters(10)
+                .lockBackend(BACKEND)
+                .build();
+        HazelcastInstance member = BACKEND == LockBackendType.HAZELCAST
+                ? Hazelcast.newHazelcastInstance(HazelcastServerNode.createMemberConfig(config)
+                .setInstanceName("queue-test-member"))
+                : null;
+        LockService queueService = new LockService(member, config);
+        try {
+            queueService.doWithWriteLock("pidQueued", () -> {
+                assertThrows(CompletionException.class, () -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return queueService.doWithWriteLock("pidQueued", () -> true);
+                    } catch (TimeoutException e) {
+                        throw new CompletionException(e);
+                    }
+                }).join(), "The waiter must time out");
+                return null;
+            });
+            // the waiter which timed out must not stay at the head of the queue until its wait goes stale
+            assertTrue(CompletableFuture.supplyAsync(() -> {
+                try {
+                    DistributedReadWriteLock lock = queueService.getReadWriteLock("pidQueued");
+                    boolean acquired = lock.tryWriteLock(200, TimeUnit.MILLISECONDS);
+                    if (acquired) {
+                        lock.unlockWrite();
+                    }
+                    return acquired;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }).join(), "A free lock must be granted right after its only waiter gave up");
+            if (member != null) {
+                WaitQueues queues = (WaitQueues) member.getUserContext().get(WaitQueues.USER_CONTEXT_KEY);
+                assertEquals(0, queues.getWaiters());
+            }
+        } finally {
+            queueService.shutdown();
+            if (member != null) {
+                member.shutdown();
+            }
+        }
+    }
+
     private static HazelcastConfiguration createHazelcastConfig() {
         HazelcastConfiguration hazelcastConfig = new HazelcastConfiguration.Builder()
                 .hazelcastInstance("akubrasync")
                 .hazelcastUser("dev")
                 .waitTimeSecs(120L)
                 .leaseTimeSecs(300L)
+                .lockBackend(BACKEND)
                 .build();
         return hazelcastConfig;
     }
@@ -16,6 +16,9 @@
  */
 package org.ceskaexpedice.hazelcast;
 
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.config.MapConfig;
 import org.junit.jupiter.api.Test;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -25,8 +28,9 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -35,15 +39,132 @@ public class InitConfigurationTest {
 
     @Test
     public void testInitConfig() throws ParserConfigurationException, IOException, SAXException {
-        String path = HazelcastServerNodeStarter.initDefaultConfiguration();
-        assertNotNull(path);
+        InputStream resource = HazelcastServerNodeStarter.class.getClassLoader().getResourceAsStream("default-config.xml");
+        assertNotNull(resource);
 
         DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-        Document parsed = builder.parse(new File(path));
+        Document parsed;
+        try (InputStream stream = resource) {
+            parsed = builder.parse(stream);
+        }
 
         Element rootElm = parsed.getDocumentElement();
         assertEquals(rootElm.getNodeName(), "hazelcast");
 
     }
 
+    @Test
+    public void testClientPerformanceSettings() {
+        HazelcastConfiguration defaults = new HazelcastConfiguration.Builder().build();
+        assertTrue(defaults.getClientHeartbeatTimeoutMillis() > defaults.getClientHeartbeatIntervalMillis());
+        assertTrue(defaults.getClientConnectionAttemptLimit() >= 0);
+
+        HazelcastConfiguration tuned = new HazelcastConfiguration.Builder()
+                .clientSmartRouting(false)
+                .clientIoThreads(2)
+                .clientHeartbeatTimeoutMillis(7000L)
+                .build();
+        assertFalse(tuned.isClientSmartRouting());
+        assertEquals(2, tuned.getClientIoThreads());
+        assertEquals(7000L, tuned.getClientHeartbeatTimeoutMillis());
+    }
+
+    @Test
+    public void testEmbeddedMemberConfig() {
+        HazelcastConfiguration.Builder builder = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasyncEmbedded")
+                .hazelcastUser("dev");
+        assertFalse(HazelcastServerNode.createMemberConfig(builder.build()).isLiteMember());
+        assertTrue(HazelcastServerNode.createMemberConfig(builder.liteMember(true).build()).isLiteMember());
+    }
+
+    @Test
+    public void testMissingConfigFile() {
+        Config config = HazelcastServerNode.createMemberConfig(new HazelcastConfiguration.Builder()
+                .hazelcastConfigFile("does-not-exist/hazelcast.xml")
+                .hazelcastInstance("akubrasyncMissing")
+                .hazelcastUser("dev")
+                .lockBackupCount(2)
+                .build());
+        assertEquals("akubrasyncMissing", config.getInstanceName());
+        assertEquals("dev", config.getGroupConfig().getName());
+        assertEquals(2, config.getMapConfig(DistributedReadWriteLock.MAP_NAME).getBackupCount(),
+                "The performance profile must apply to the default configuration");
+    }
+
+    @Test
+    public void testServerPerformanceProfile() {
+        HazelcastConfiguration.Builder builder = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasyncProfile")
+                .hazelcastUser("dev");
+        Config defaults = HazelcastServerNode.createMemberConfig(builder.build());
+        assertNull(defaults.getProperty("hazelcast.partition.count"), "An unset profile must keep the Hazelcast defaults");
+        assertEquals(1, defaults.getMapConfig(DistributedReadWriteLock.MAP_NAME).getBackupCount());
+
+        Config tuned = HazelcastServerNode.createMemberConfig(builder
+                .partitionCount(31)
+                .operationThreads(4)
+                .genericOperationThreads(2)
+                .serverIoThreads(3)
+                .lockBackupCount(2)
+                .lockAsyncBackupCount(1)
+                .build());
+        assertEquals("31", tuned.getProperty("hazelcast.partition.count"));
+        assertEquals("4", tuned.getProperty("hazelcast.operation.thread.count"));
+        assertEquals("2", tuned.getProperty("hazelcast.operation.generic.thread.count"));
+        assertEquals("3", tuned.getProperty("hazelcast.io.input.thread.count"));
+        assertEquals("3", tuned.getProperty("hazelcast.io.output.thread.count"));
+        MapConfig lockMap = tuned.getMapConfig(DistributedReadWriteLock.MAP_NAME);
+        assertEquals(2, lockMap.getBackupCount());
+        assertEquals(1, lockMap.getAsyncBackupCount());
+    }
+
+    @Test
+    public void testClusterMembers() {
+        HazelcastConfiguration.Builder builder = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasyncCluster")
+                .hazelcastUser("dev");
+        assertTrue(HazelcastServerNode.createMemberConfig(builder.build()).getNetworkConfig().getJoin()
+                .getMulticastConfig().isEnabled(), "Without members the join configuration must be kept");
+
+        String[] members = HazelcastServerNodeStarter.parseMembers(" locks-1, locks-2:5702,, locks-3 ,");
+        assertArrayEquals(new String[]{"locks-1", "locks-2:5702", "locks-3"}, members);
+        assertEquals(0, HazelcastServerNodeStarter.parseMembers(" , ").length);
+
+        JoinConfig join = HazelcastServerNode.createMemberConfig(builder.setHazelcastServers(members).build())
+                .getNetworkConfig().getJoin();
+        assertFalse(join.getMulticastConfig().isEnabled());
+        assertTrue(join.getTcpIpConfig().isEnabled());
+        assertEquals(Arrays.asList(members), join.getTcpIpConfig().getMembers());
+    }
+
+    @Test
+    public void testLockBackupModes() {
+        HazelcastConfiguration.Builder builder = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasyncBackups")
+                .hazelcastUser("dev")
+                .lockBackupCount(2)
+                .lockAsyncBackupCount(2);
+        MapConfig sync = lockMapConfig(builder.lockBackupMode(LockBackupMode.SYNC));
+        assertEquals(2, sync.getBackupCount());
+        assertEquals(0, sync.getAsyncBackupCount());
+        MapConfig async = lockMapConfig(builder.lockBackupMode(LockBackupMode.ASYNC));
+        assertEquals(0, async.getBackupCount());
+        assertEquals(2, async.getAsyncBackupCount());
+        MapConfig none = lockMapConfig(builder.lockBackupMode(LockBackupMode.NONE));
+        assertEquals(0, none.getBackupCount());
+        assertEquals(0, none.getAsyncBackupCount());
+
+        MapConfig defaultCount = lockMapConfig(new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasyncBackups")
+                .hazelcastUser("dev")
+                .lockBackupMode(LockBackupMode.ASYNC));
+        assertEquals(0, defaultCount.getBackupCount());
+        assertEquals(1, defaultCount.getAsyncBackupCount(), "A backup mode without a count must keep one backup");
+    }
+
+    private static MapConfig lockMapConfig(HazelcastConfiguration.Builder builder) {
+        return HazelcastServerNode.createMemberConfig(builder.build()).getMapConfig(DistributedReadWriteLock.MAP_NAME);
+    }
+
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2025 Inovatika
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.ceskaexpedice.hazelcast;
+
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadLocksTest {
+    private static final int THREADS = 10_000;
+    private static final int PIDS = 16;
+
+    private static HazelcastClientNode hazelcastClientNode;
+    private static LockService lockService;
+
+    @BeforeAll
+    static void beforeAll() {
+        HazelcastConfiguration hazelcastConfig = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasync")
+                .hazelcastUser("dev")
+                .waitTimeSecs(120L)
+                .leaseTimeSecs(60L)
+                .virtualThreadMode(true)
+                .build();
+        HazelcastServerNode.ensureHazelcastNode(hazelcastConfig);
+        hazelcastClientNode = new HazelcastClientNode();
+        hazelcastClientNode.ensureHazelcastNode(hazelcastConfig);
+        lockService = new LockService(hazelcastClientNode, hazelcastConfig);
+    }
+
+    @AfterAll
+    static void afterAll() {
+        lockService.shutdown();
+        hazelcastClientNode.shutdown();
+        HazelcastServerNode.shutdown();
+    }
+
+    @Test
+    void testContendedVirtualThreadsDoNotPin() throws Exception {
+        AtomicLong pinned = new AtomicLong();
+        AtomicInteger failures = new AtomicInteger();
+        int[] counters = new int[PIDS];
+        long start;
+        long elapsedMillis;
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable("jdk.VirtualThreadPinned").withoutThreshold();
+            recording.onEvent("jdk.VirtualThreadPinned", event -> pinned.incrementAndGet());
+            recording.startAsync();
+
+            start = System.currentTimeMillis();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < THREADS; i++) {
+                    int pid = i % PIDS;
+                    executor.submit(() -> {
+                        try {
+                            lockService.doWithLock("vpid" + pid, () -> {
+                                // not atomic on purpose, the lock guards it
+                                counters[pid]++;
+                                return null;
+                            });
+                        } catch (TimeoutException e) {
+                            failures.incrementAndGet();
+                        }
+                    });
+                }
+            }
+            elapsedMillis = Math.max(1, System.currentTimeMillis() - start);
+            recording.stop();
+        }
+
+        int total = 0;
+        for (int counter : counters) {
+            total += counter;
+        }
+        double throughput = THREADS * 1000.0 / elapsedMillis;
+        System.out.println(THREADS + " virtual threads on " + PIDS + " PIDs took " + elapsedMillis + " ms ("
+                + (long) throughput + " locks/s), " + lockService.getStatistics());
+
+        assertEquals(0, failures.get(), "No lock request may time out");
+        assertEquals(THREADS, total, "Every operation must run exactly once under its lock");
+        assertEquals(0, pinned.get(), "Waiting for locks must not pin carrier threads");
+        assertTrue(throughput >= 200, "Throughput too low: " + (long) throughput + " locks/s");
+    }
+
+    @Test
+    void testVirtualThreadModeExcludesOtherServices() throws Exception {
+        HazelcastConfiguration plainConfig = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasync")
+                .hazelcastUser("dev")
+                .waitTimeSecs(1L)
+                .leaseTimeSecs(60L)
+                .build();
+        LockService plainService = new LockService(hazelcastClientNode, plainConfig);
+        try {
+            // services with and without the virtual thread mode must lock the same name
+            Boolean otherAcquired = lockService.doWithLock("vpidMixed", () -> CompletableFuture.supplyAsync(() -> {
+                try {
+                    return plainService.doWithLock("vpidMixed", () -> true);
+                } catch (TimeoutException e) {
+                    return false;
+                }
+            }).join());
+            assertFalse(otherAcquired, "A plain service must wait for the lock held in the virtual thread mode");
+            assertTrue(plainService.doWithLock("vpidMixed", () -> true));
+        } finally {
+            plainService.shutdown();
+        }
+    }
+
+    @Test
+    void testVirtualThreadModeIgnoresBiasedLocking() throws Exception {
+        HazelcastConfiguration biasedConfig = new HazelcastConfiguration.Builder()
+                .hazelcastInstance("akubrasync")
+                .hazelcastUser("dev")
+                .virtualThreadMode(true)
+                .biasedLocking(true)
+                .biasedLockGraceMillis(10000L)
+                .build();
+        LockService biasedService = new LockService(hazelcastClientNode, biasedConfig);
+        try {
+            assertTrue(biasedService.doWithLock("vpidBiased", () -> true));
+            // a biased lock would be retained for the grace period, blocking client calls included
+            assertFalse(hazelcastClientNode.getHzInstance().getMap(DistributedReadWriteLock.MAP_NAME)
+                    .containsKey("vpidBiased"), "The lock must be released through the virtual thread path");
+        } finally {
+            biasedService.shutdown();
+        }
+    }
+}